@@ -0,0 +1,38 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * The BuildCraft API is distributed under the terms of the MIT License.
+ * Please check the contents of the license, which should be located
+ * as "LICENSE.API" in the BuildCraft source code distribution.
+ */
+package buildcraft.api.statements;
+
+/**
+ * Tells gates when the state of a trigger may have changed. Gates which
+ * schedule their updates only check their triggers again when one of them
+ * asks for it, triggers not implementing this are checked on every tick.
+ */
+public interface ITriggerRecheck {
+	public enum Policy {
+		/** Checked on every tick. */
+		EVERY_TICK,
+		/**
+		 * Checked when a block or tile next to the gate changes. This
+		 * includes inventories being marked dirty.
+		 */
+		NEIGHBOR_CHANGE,
+		/** Checked when a wire signal reaching the gate is turned on or off. */
+		WIRE_CHANGE,
+		/** Checked every {@link ITriggerRecheck#getRecheckInterval()} ticks. */
+		PERIODIC
+	}
+
+	Policy getRecheckPolicy();
+
+	/**
+	 * Return the number of ticks between two checks of a PERIODIC trigger.
+	 * Ignored for other policies.
+	 */
+	int getRecheckInterval();
+}
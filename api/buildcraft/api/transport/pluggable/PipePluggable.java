@@ -29,6 +29,14 @@ public abstract class PipePluggable implements INBTStoreable, ISerializable {
 
 	}
 
+	/**
+	 * Return false if update() does nothing. Pipes may stop ticking while
+	 * idle, but only if none of their pluggables needs to be updated.
+	 */
+	public boolean requiresUpdates() {
+		return true;
+	}
+
 	public void onAttachedPipe(IPipeTile pipe, ForgeDirection direction) {
 		validate(pipe, direction);
 	}
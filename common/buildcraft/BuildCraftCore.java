@@ -101,6 +101,7 @@ import buildcraft.core.config.BuildCraftConfiguration;
 import buildcraft.core.config.ConfigManager;
 import buildcraft.core.crops.CropHandlerPlantable;
 import buildcraft.core.crops.CropHandlerReeds;
+import buildcraft.core.lib.TileBufferRegistry;
 import buildcraft.core.lib.commands.RootCommand;
 import buildcraft.core.lib.engines.ItemEngine;
 import buildcraft.core.lib.engines.TileEngineBase;
@@ -435,6 +436,7 @@ public class BuildCraftCore extends BuildCraftMod {
 		BuildCraftAPI.softBlocks.add(Blocks.air);
 
 		FMLCommonHandler.instance().bus().register(new TickHandlerCore());
+		MinecraftForge.EVENT_BUS.register(TileBufferRegistry.INSTANCE);
 
 		CropManager.setDefaultHandler(new CropHandlerPlantable());
 		CropManager.registerHandler(new CropHandlerReeds());
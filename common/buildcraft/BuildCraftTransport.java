@@ -86,6 +86,7 @@ import buildcraft.transport.TransportGuiHandler;
 import buildcraft.transport.TransportProxy;
 import buildcraft.transport.TransportSiliconRecipes;
 import buildcraft.transport.WireIconProvider;
+import buildcraft.transport.command.SubCommandPipes;
 import buildcraft.transport.gates.GateDefinition;
 import buildcraft.transport.gates.GateDefinition.GateLogic;
 import buildcraft.transport.gates.GateDefinition.GateMaterial;
@@ -97,10 +98,12 @@ import buildcraft.transport.gates.GatePluggable;
 import buildcraft.transport.gates.ItemGate;
 import buildcraft.transport.network.PacketFluidUpdate;
 import buildcraft.transport.network.PacketHandlerTransport;
+import buildcraft.transport.network.PacketPipeBatch;
 import buildcraft.transport.network.PacketPipeTransportItemStack;
 import buildcraft.transport.network.PacketPipeTransportItemStackRequest;
 import buildcraft.transport.network.PacketPipeTransportTraveler;
 import buildcraft.transport.network.PacketPowerUpdate;
+import buildcraft.transport.network.PipeSyncBatcher;
 import buildcraft.transport.pipes.PipeFluidsCobblestone;
 import buildcraft.transport.pipes.PipeFluidsDiamond;
 import buildcraft.transport.pipes.PipeFluidsEmerald;
@@ -179,6 +182,7 @@ import buildcraft.transport.stripes.StripesHandlerPlant;
 import buildcraft.transport.stripes.StripesHandlerRightClick;
 import buildcraft.transport.stripes.StripesHandlerShears;
 import buildcraft.transport.stripes.StripesHandlerUse;
+import buildcraft.transport.utils.SuctionIndex;
 
 @Mod(version = Version.VERSION, modid = "BuildCraft|Transport", name = "Buildcraft Transport", dependencies = DefaultProps.DEPENDENCY_CORE)
 public class BuildCraftTransport extends BuildCraftMod {
@@ -263,10 +267,18 @@ public class BuildCraftTransport extends BuildCraftMod {
 
     public static boolean debugPrintFacadeList = false;
 	public static boolean usePipeLoss = false;
+	public static boolean itemPipeFastForward = false;
+	public static boolean itemPipeDelayLines = false;
+	public static boolean fluidPipeNetworks = false;
+	public static boolean powerPipeNetworks = false;
+	public static boolean gateScheduling = false;
+	public static boolean pipeSleep = true;
 
 	public static float gateCostMultiplier = 1.0F;
 
 	public static PipeExtensionListener pipeExtensionListener;
+	public static PipeSyncBatcher pipeSyncBatcher;
+	public static SuctionIndex suctionIndex;
 
 	private static LinkedList<PipeRecipe> pipeRecipes = new LinkedList<PipeRecipe>();
 	private static ChannelHandler transportChannelHandler;
@@ -284,14 +296,23 @@ public class BuildCraftTransport extends BuildCraftMod {
 	public void preInit(FMLPreInitializationEvent evt) {
 		new BCCreativeTab("pipes");
 		new BCCreativeTab("facades");
+
+		BuildCraftCore.commandBuildcraft.addChildCommand(new SubCommandPipes());
+
 		if (Loader.isModLoaded("BuildCraft|Silicon")) {
 			new BCCreativeTab("gates");
 		}
 
 		try {
 			BuildCraftCore.mainConfigManager.register("experimental.kinesisPowerLossOnTravel", false, "Should kinesis pipes lose power over distance (think IC2 or BC pre-3.7)?", ConfigManager.RestartRequirement.WORLD);
+			BuildCraftCore.mainConfigManager.register("experimental.itemPipeFastForward", false, "Should item pipes out of sight of players only handle items when they reach the center or the end of the pipe?", ConfigManager.RestartRequirement.NONE);
+			BuildCraftCore.mainConfigManager.register("experimental.itemPipeDelayLines", false, "Should long straight runs of stone and cobblestone pipes out of sight of players move items as a whole?", ConfigManager.RestartRequirement.NONE);
+			BuildCraftCore.mainConfigManager.register("experimental.fluidPipeNetworks", false, "Should connected plain fluid pipes move their fluid as a single network?", ConfigManager.RestartRequirement.NONE);
+			BuildCraftCore.mainConfigManager.register("experimental.powerPipeNetworks", false, "Should connected kinesis pipes share their energy as a single network?", ConfigManager.RestartRequirement.NONE);
+			BuildCraftCore.mainConfigManager.register("experimental.gateScheduling", false, "Should gates only check their triggers again when something they watch may have changed?", ConfigManager.RestartRequirement.NONE);
 
 			BuildCraftCore.mainConfigManager.register("general.pipes.hardness", DefaultProps.PIPES_DURABILITY, "How hard to break should a pipe be?", ConfigManager.RestartRequirement.NONE);
+			BuildCraftCore.mainConfigManager.register("general.pipes.sleep", true, "Should idle BuildCraft pipes stop ticking until something happens to them? Pipe types added by other mods always tick.", ConfigManager.RestartRequirement.NONE);
 			BuildCraftCore.mainConfigManager.register("general.pipes.baseFluidRate", DefaultProps.PIPES_FLUIDS_BASE_FLOW_RATE, "What should the base flow rate of a fluid pipe be?", ConfigManager.RestartRequirement.GAME)
 					.setMinValue(1).setMaxValue(40);
 			BuildCraftCore.mainConfigManager.register("debug.printFacadeList", false, "Print a list of all registered facades.", ConfigManager.RestartRequirement.GAME);
@@ -445,11 +466,20 @@ public class BuildCraftTransport extends BuildCraftMod {
 		transportChannelHandler = new ChannelHandler();
 		MinecraftForge.EVENT_BUS.register(this);
 
+		pipeSyncBatcher = new PipeSyncBatcher();
+		FMLCommonHandler.instance().bus().register(pipeSyncBatcher);
+		MinecraftForge.EVENT_BUS.register(pipeSyncBatcher);
+
+		suctionIndex = new SuctionIndex();
+		FMLCommonHandler.instance().bus().register(suctionIndex);
+		MinecraftForge.EVENT_BUS.register(suctionIndex);
+
 		transportChannelHandler.registerPacketType(PacketFluidUpdate.class);
 		transportChannelHandler.registerPacketType(PacketPipeTransportItemStack.class);
 		transportChannelHandler.registerPacketType(PacketPipeTransportItemStackRequest.class);
 		transportChannelHandler.registerPacketType(PacketPipeTransportTraveler.class);
 		transportChannelHandler.registerPacketType(PacketPowerUpdate.class);
+		transportChannelHandler.registerPacketType(PacketPipeBatch.class);
 
 		channels = NetworkRegistry.INSTANCE.newChannel
 				(DefaultProps.NET_CHANNEL_NAME + "-TRANSPORT", transportChannelHandler, new PacketHandlerTransport());
@@ -558,6 +588,12 @@ public class BuildCraftTransport extends BuildCraftMod {
 			reloadConfig(ConfigManager.RestartRequirement.NONE);
 		} else {
 			pipeDurability = (float) BuildCraftCore.mainConfigManager.get("general.pipes.hardness").getDouble();
+			pipeSleep = BuildCraftCore.mainConfigManager.get("general.pipes.sleep").getBoolean();
+			itemPipeFastForward = BuildCraftCore.mainConfigManager.get("experimental.itemPipeFastForward").getBoolean();
+			itemPipeDelayLines = BuildCraftCore.mainConfigManager.get("experimental.itemPipeDelayLines").getBoolean();
+			fluidPipeNetworks = BuildCraftCore.mainConfigManager.get("experimental.fluidPipeNetworks").getBoolean();
+			powerPipeNetworks = BuildCraftCore.mainConfigManager.get("experimental.powerPipeNetworks").getBoolean();
+			gateScheduling = BuildCraftCore.mainConfigManager.get("experimental.gateScheduling").getBoolean();
 
 			if (BuildCraftCore.mainConfiguration.hasChanged()) {
 				BuildCraftCore.mainConfiguration.save();
@@ -615,6 +651,10 @@ public class BuildCraftTransport extends BuildCraftMod {
 		}
 		FMLCommonHandler.instance().bus().unregister(pipeExtensionListener);
 		pipeExtensionListener = null;
+
+		for (WorldServer w : DimensionManager.getWorlds()) {
+			pipeSyncBatcher.flush(w);
+		}
 	}
 
 	public void loadRecipes() {
@@ -686,6 +726,8 @@ public class BuildCraftTransport extends BuildCraftMod {
 			Object... ingredients) {
 		ItemPipe res = BlockGenericPipe.registerPipe(clas, creativeTab);
 		res.setUnlocalizedName(clas.getSimpleName());
+		// Our own pipes report all their per-tick work in isIdle().
+		Pipe.allowSleep(clas);
 
 		// Add appropriate recipes to temporary list
 		if (ingredients.length == 3) {
@@ -123,6 +123,7 @@ public class BlockMarker extends BlockBuildCraft {
 
 	@Override
 	public void onNeighborBlockChange(World world, int x, int y, int z, Block block) {
+		super.onNeighborBlockChange(world, x, y, z, block);
 		TileEntity tile = world.getTileEntity(x, y, z);
 		if (tile instanceof TileMarker) {
 			((TileMarker) tile).updateSignals();
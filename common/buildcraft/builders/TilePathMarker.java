@@ -275,6 +275,7 @@ public class TilePathMarker extends TileMarker implements IPathProvider {
 
 	@Override
 	public void onChunkUnload() {
+		super.onChunkUnload();
 		availableMarkers.remove(this);
 	}
 
@@ -502,6 +502,7 @@ public class TileQuarry extends TileAbstractBuilder implements IHasWork, ISidedI
 
 	@Override
 	public void onChunkUnload() {
+		super.onChunkUnload();
 		destroy();
 	}
 
@@ -28,14 +28,17 @@ import net.minecraftforge.oredict.OreDictionary;
 
 import buildcraft.BuildCraftCore;
 import buildcraft.api.items.IList;
+import buildcraft.core.lib.inventory.StackFilterIndex;
 import buildcraft.core.lib.inventory.StackHelper;
+import buildcraft.core.lib.inventory.filters.IStackFilter;
 import buildcraft.core.lib.items.ItemBuildCraft;
 import buildcraft.core.lib.utils.NBTUtils;
 
 public class ItemList extends ItemBuildCraft implements IList {
 	private static final WeakHashMap<ItemStack, StackLine[]> LINE_CACHE = new WeakHashMap<ItemStack, StackLine[]>();
+	private static final WeakHashMap<ItemStack, StackFilterIndex> INDEX_CACHE = new WeakHashMap<ItemStack, StackFilterIndex>();
 
-	public static class StackLine {
+	public static class StackLine implements IStackFilter {
 		public boolean oreWildcard = false;
 		public boolean subitemsWildcard = false;
 		public boolean isOre;
@@ -185,6 +188,30 @@ public class ItemList extends ItemBuildCraft implements IList {
 			}
 		}
 
+		/**
+		 * Adds this line to the given index, as the given slot.
+		 */
+		public void addTo(StackFilterIndex index, int slot) {
+			if (stacks[0] == null && (subitemsWildcard || oreWildcard)) {
+				return;
+			}
+
+			if (subitemsWildcard) {
+				index.addFilter(slot, this);
+			} else if (oreWildcard) {
+				for (int id : OreDictionary.getOreIDs(stacks[0])) {
+					index.addOre(slot, id);
+				}
+			} else {
+				for (ItemStack stack : stacks) {
+					if (stack != null) {
+						index.addStack(slot, stack);
+					}
+				}
+			}
+		}
+
+		@Override
 		public boolean matches(ItemStack item) {
 			if (subitemsWildcard) {
 				if (stacks[0] == null) {
@@ -251,6 +278,8 @@ public class ItemList extends ItemBuildCraft implements IList {
 		NBTTagCompound lineNBT = new NBTTagCompound();
 		line.writeToNBT(lineNBT);
 		nbt.setTag("line[" + index + "]", lineNBT);
+
+		INDEX_CACHE.remove(stack);
 	}
 
 	public static void saveLabel(ItemStack stack, String text) {
@@ -299,18 +328,29 @@ public class ItemList extends ItemBuildCraft implements IList {
 		return NBTUtils.getItemData(stack).getString("label");
 	}
 
-	@Override
-	public boolean matches(ItemStack stackList, ItemStack item) {
-		StackLine[] lines = getLines(stackList);
+	/**
+	 * Returns the lines of the given list compiled into an index, line n
+	 * being slot n.
+	 */
+	public static StackFilterIndex getIndex(ItemStack stack) {
+		StackFilterIndex index = INDEX_CACHE.get(stack);
+
+		if (index == null) {
+			index = new StackFilterIndex();
+			StackLine[] lines = getLines(stack);
 
-		if (lines != null) {
 			for (int i = 0; i < lines.length; i++) {
-				if (lines[i] != null && lines[i].matches(item)) {
-					return true;
-				}
+				lines[i].addTo(index, i);
 			}
+
+			INDEX_CACHE.put(stack, index);
 		}
 
-		return false;
+		return index;
+	}
+
+	@Override
+	public boolean matches(ItemStack stackList, ItemStack item) {
+		return getIndex(stackList).getMatches(item) != 0;
 	}
 }
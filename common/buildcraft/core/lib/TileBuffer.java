@@ -13,18 +13,29 @@ import net.minecraft.tileentity.TileEntity;
 import net.minecraft.world.World;
 import net.minecraftforge.common.util.ForgeDirection;
 
-import buildcraft.api.core.SafeTimeTracker;
 import buildcraft.core.lib.utils.BlockUtils;
 import buildcraft.core.lib.utils.Utils;
 
+/**
+ * Cached view of the block and tile entity at a position, usually next to
+ * the tile holding the buffer.
+ *
+ * The cached values are only looked up again once the
+ * {@link TileBufferRegistry} reports a block update at the position, or a
+ * load or unload of its chunk, or once the holder marks the buffer stale on
+ * a neighbor change. Buffers must be released with {@link #release()} when
+ * their holder goes away.
+ */
 public final class TileBuffer {
 
+	final World world;
+	final int x, y, z;
+
 	private Block block = null;
 	private TileEntity tile;
+	private boolean stale;
+	private boolean registered;
 
-	private final SafeTimeTracker tracker = new SafeTimeTracker(20, 5);
-	private final World world;
-	private final int x, y, z;
 	private final boolean loadUnloaded;
 
 	public TileBuffer(World world, int x, int y, int z, boolean loadUnloaded) {
@@ -35,11 +46,15 @@ public final class TileBuffer {
 		this.loadUnloaded = loadUnloaded;
 
 		refresh();
+
+		TileBufferRegistry.INSTANCE.register(this);
+		registered = true;
 	}
 
 	public void refresh() {
 		tile = null;
 		block = null;
+		stale = false;
 
 		if (!loadUnloaded && !world.blockExists(x, y, z)) {
 			return;
@@ -55,11 +70,29 @@ public final class TileBuffer {
 	public void set(Block block, TileEntity tile) {
 		this.block = block;
 		this.tile = tile;
-		tracker.markTime(world);
+		stale = false;
+	}
+
+	/**
+	 * Makes the next read look the block and tile up again.
+	 */
+	public void markStale() {
+		stale = true;
+	}
+
+	/**
+	 * Stops following changes at the buffered position.
+	 */
+	public void release() {
+		if (registered) {
+			TileBufferRegistry.INSTANCE.unregister(this);
+			registered = false;
+		}
 	}
 
 	private void tryRefresh() {
-		if (Utils.CAULDRON_DETECTED || (tile != null && tile.isInvalid()) || (tile == null && tracker.markTimeIfDelay(world))) {
+		// A tile replaced without a block update is only seen as invalid.
+		if (stale || Utils.CAULDRON_DETECTED || (tile != null && tile.isInvalid())) {
 			refresh();
 		}
 	}
@@ -74,24 +107,18 @@ public final class TileBuffer {
 		return getTile(false);
 	}
 
+	/**
+	 * Stale and invalid tiles are always looked up again, forceUpdate is
+	 * kept for callers written against the polling buffer.
+	 */
 	public TileEntity getTile(boolean forceUpdate) {
-		if (!Utils.CAULDRON_DETECTED && tile != null && !tile.isInvalid()) {
-			return tile;
-		}
-
-		if (Utils.CAULDRON_DETECTED || (forceUpdate && tile != null && tile.isInvalid()) || tracker.markTimeIfDelay(world)) {
-			refresh();
-
-			if (tile != null && !tile.isInvalid()) {
-				return tile;
-			}
-		}
+		tryRefresh();
 
-		return null;
+		return tile;
 	}
 
 	public boolean exists() {
-		if (tile != null && !Utils.CAULDRON_DETECTED && !tile.isInvalid()) {
+		if (tile != null && !stale && !Utils.CAULDRON_DETECTED && !tile.isInvalid()) {
 			return true;
 		}
 
@@ -108,4 +135,26 @@ public final class TileBuffer {
 
 		return buffer;
 	}
+
+	/**
+	 * Releases all the buffers of an array made by {@link #makeBuffer}.
+	 */
+	public static void release(TileBuffer[] buffer) {
+		if (buffer != null) {
+			for (TileBuffer b : buffer) {
+				b.release();
+			}
+		}
+	}
+
+	/**
+	 * Marks all the buffers of an array made by {@link #makeBuffer} stale.
+	 */
+	public static void markStale(TileBuffer[] buffer) {
+		if (buffer != null) {
+			for (TileBuffer b : buffer) {
+				b.markStale();
+			}
+		}
+	}
 }
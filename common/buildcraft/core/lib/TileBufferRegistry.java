@@ -0,0 +1,231 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.core.lib;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.world.ChunkCoordIntPair;
+import net.minecraft.world.IWorldAccess;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+
+/**
+ * Keeps track of the {@link TileBuffer}s watching each chunk, and marks them
+ * as stale when the block they watch is updated, or when their chunk is
+ * loaded or unloaded. Stale buffers are only refreshed when next read, so
+ * loading many chunks at once doesn't cause a burst of world lookups.
+ */
+public final class TileBufferRegistry {
+	public static final TileBufferRegistry INSTANCE = new TileBufferRegistry();
+
+	private static final class WorldBuffers implements IWorldAccess {
+		private final World world;
+		private final TLongObjectHashMap<TIntObjectHashMap<ArrayList<TileBuffer>>> chunks = new TLongObjectHashMap<TIntObjectHashMap<ArrayList<TileBuffer>>>();
+
+		public WorldBuffers(World world) {
+			this.world = world;
+			world.addWorldAccess(this);
+		}
+
+		private static int key(int x, int y, int z) {
+			return (x & 15) | ((z & 15) << 4) | (y << 8);
+		}
+
+		public void add(TileBuffer buffer) {
+			long chunkKey = ChunkCoordIntPair.chunkXZ2Int(buffer.x >> 4, buffer.z >> 4);
+			TIntObjectHashMap<ArrayList<TileBuffer>> chunk = chunks.get(chunkKey);
+
+			if (chunk == null) {
+				chunk = new TIntObjectHashMap<ArrayList<TileBuffer>>();
+				chunks.put(chunkKey, chunk);
+			}
+
+			int key = key(buffer.x, buffer.y, buffer.z);
+			ArrayList<TileBuffer> buffers = chunk.get(key);
+
+			if (buffers == null) {
+				buffers = new ArrayList<TileBuffer>(2);
+				chunk.put(key, buffers);
+			}
+
+			buffers.add(buffer);
+		}
+
+		public void remove(TileBuffer buffer) {
+			long chunkKey = ChunkCoordIntPair.chunkXZ2Int(buffer.x >> 4, buffer.z >> 4);
+			TIntObjectHashMap<ArrayList<TileBuffer>> chunk = chunks.get(chunkKey);
+
+			if (chunk == null) {
+				return;
+			}
+
+			int key = key(buffer.x, buffer.y, buffer.z);
+			ArrayList<TileBuffer> buffers = chunk.get(key);
+
+			if (buffers != null && buffers.remove(buffer) && buffers.isEmpty()) {
+				chunk.remove(key);
+
+				if (chunk.isEmpty()) {
+					chunks.remove(chunkKey);
+				}
+			}
+		}
+
+		public void markChunkStale(int chunkX, int chunkZ) {
+			TIntObjectHashMap<ArrayList<TileBuffer>> chunk = chunks.get(ChunkCoordIntPair.chunkXZ2Int(chunkX, chunkZ));
+
+			if (chunk != null) {
+				for (ArrayList<TileBuffer> buffers : chunk.valueCollection()) {
+					for (TileBuffer buffer : buffers) {
+						buffer.markStale();
+					}
+				}
+			}
+		}
+
+		public void clear() {
+			world.removeWorldAccess(this);
+			chunks.clear();
+		}
+
+		@Override
+		public void markBlockForUpdate(int x, int y, int z) {
+			TIntObjectHashMap<ArrayList<TileBuffer>> chunk = chunks.get(ChunkCoordIntPair.chunkXZ2Int(x >> 4, z >> 4));
+
+			if (chunk != null) {
+				ArrayList<TileBuffer> buffers = chunk.get(key(x, y, z));
+
+				if (buffers != null) {
+					for (TileBuffer buffer : buffers) {
+						buffer.markStale();
+					}
+				}
+			}
+		}
+
+		@Override
+		public void markBlockForRenderUpdate(int x, int y, int z) {
+		}
+
+		@Override
+		public void markBlockRangeForRenderUpdate(int x1, int y1, int z1, int x2, int y2, int z2) {
+		}
+
+		@Override
+		public void playSound(String sound, double x, double y, double z, float volume, float pitch) {
+		}
+
+		@Override
+		public void playSoundToNearExcept(EntityPlayer player, String sound, double x, double y, double z,
+				float volume, float pitch) {
+		}
+
+		@Override
+		public void spawnParticle(String particle, double x, double y, double z, double velX, double velY,
+				double velZ) {
+		}
+
+		@Override
+		public void onEntityCreate(Entity entity) {
+		}
+
+		@Override
+		public void onEntityDestroy(Entity entity) {
+		}
+
+		@Override
+		public void playRecord(String record, int x, int y, int z) {
+		}
+
+		@Override
+		public void broadcastSound(int sound, int x, int y, int z, int data) {
+		}
+
+		@Override
+		public void playAuxSFX(EntityPlayer player, int sfx, int x, int y, int z, int data) {
+		}
+
+		@Override
+		public void destroyBlockPartially(int entityId, int x, int y, int z, int progress) {
+		}
+
+		@Override
+		public void onStaticEntitiesChanged() {
+		}
+	}
+
+	private final Map<World, WorldBuffers> worlds = new HashMap<World, WorldBuffers>();
+
+	private TileBufferRegistry() {
+	}
+
+	private synchronized WorldBuffers getWorld(World world, boolean create) {
+		WorldBuffers buffers = worlds.get(world);
+
+		if (buffers == null && create) {
+			buffers = new WorldBuffers(world);
+			worlds.put(world, buffers);
+		}
+
+		return buffers;
+	}
+
+	public void register(TileBuffer buffer) {
+		getWorld(buffer.world, true).add(buffer);
+	}
+
+	public void unregister(TileBuffer buffer) {
+		WorldBuffers buffers = getWorld(buffer.world, false);
+
+		if (buffers != null) {
+			buffers.remove(buffer);
+		}
+	}
+
+	@SubscribeEvent
+	public void onChunkLoad(ChunkEvent.Load event) {
+		onChunkEvent(event.getChunk());
+	}
+
+	@SubscribeEvent
+	public void onChunkUnload(ChunkEvent.Unload event) {
+		onChunkEvent(event.getChunk());
+	}
+
+	private void onChunkEvent(Chunk chunk) {
+		WorldBuffers buffers = getWorld(chunk.worldObj, false);
+
+		if (buffers != null) {
+			buffers.markChunkStale(chunk.xPosition, chunk.zPosition);
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event) {
+		WorldBuffers buffers;
+
+		synchronized (this) {
+			buffers = worlds.remove(event.world);
+		}
+
+		if (buffers != null) {
+			buffers.clear();
+		}
+	}
+}
@@ -114,6 +114,30 @@ public abstract class BlockBuildCraft extends BlockContainer {
 		super.breakBlock(world, x, y, z, block, par6);
 	}
 
+	@Override
+	public void onNeighborBlockChange(World world, int x, int y, int z, Block block) {
+		super.onNeighborBlockChange(world, x, y, z, block);
+
+		TileEntity tile = world.getTileEntity(x, y, z);
+		if (tile instanceof TileBuildCraft) {
+			((TileBuildCraft) tile).onNeighborChange(ForgeDirection.UNKNOWN);
+		}
+	}
+
+	@Override
+	public void onNeighborChange(IBlockAccess world, int x, int y, int z, int nx, int ny, int nz) {
+		super.onNeighborChange(world, x, y, z, nx, ny, nz);
+
+		TileEntity tile = world.getTileEntity(x, y, z);
+		if (tile instanceof TileBuildCraft) {
+			for (ForgeDirection d : ForgeDirection.VALID_DIRECTIONS) {
+				if (x + d.offsetX == nx && y + d.offsetY == ny && z + d.offsetZ == nz) {
+					((TileBuildCraft) tile).onNeighborChange(d);
+				}
+			}
+		}
+	}
+
 	@Override
 	public int getLightValue(IBlockAccess world, int x, int y, int z) {
 		TileEntity tile = world.getTileEntity(x, y, z);
@@ -85,6 +85,7 @@ public abstract class TileBuildCraft extends TileEntity implements IEnergyHandle
     @Override
     public void validate() {
         super.validate();
+        TileBuffer.release(cache);
         cache = null;
     }
 
@@ -92,9 +93,17 @@ public abstract class TileBuildCraft extends TileEntity implements IEnergyHandle
 	public void invalidate() {
 		init = false;
 		super.invalidate();
+        TileBuffer.release(cache);
         cache = null;
 	}
 
+	@Override
+	public void onChunkUnload() {
+		super.onChunkUnload();
+		TileBuffer.release(cache);
+		cache = null;
+	}
+
 	public void onBlockPlacedBy(EntityLivingBase entity, ItemStack stack) {
 		if (entity instanceof EntityPlayer) {
 			owner = ((EntityPlayer) entity).getDisplayName();
@@ -102,6 +111,7 @@ public abstract class TileBuildCraft extends TileEntity implements IEnergyHandle
 	}
 
 	public void destroy() {
+        TileBuffer.release(cache);
         cache = null;
 	}
 
@@ -248,6 +258,23 @@ public abstract class TileBuildCraft extends TileEntity implements IEnergyHandle
         return cache[side.ordinal()].getTile();
     }
 
+	/**
+	 * Called by {@link BlockBuildCraft} when the neighbor on the given side
+	 * changed, or any neighbor for UNKNOWN. Block changes made without a
+	 * block update don't reach the buffers otherwise.
+	 */
+	public void onNeighborChange(ForgeDirection side) {
+		if (cache == null) {
+			return;
+		}
+
+		if (side == ForgeDirection.UNKNOWN) {
+			TileBuffer.markStale(cache);
+		} else {
+			cache[side.ordinal()].markStale();
+		}
+	}
+
 	public IControllable.Mode getControlMode() {
 		return mode;
 	}
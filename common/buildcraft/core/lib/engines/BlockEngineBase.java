@@ -215,6 +215,8 @@ public abstract class BlockEngineBase extends BlockBuildCraft implements ICustom
 
 	@Override
 	public void onNeighborBlockChange(World world, int x, int y, int z, Block block) {
+		super.onNeighborBlockChange(world, x, y, z, block);
+
 		TileEntity tile = world.getTileEntity(x, y, z);
 
 		if (tile instanceof TileEngineBase) {
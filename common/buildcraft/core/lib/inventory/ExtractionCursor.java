@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.core.lib.inventory;
+
+import java.util.BitSet;
+
+import net.minecraft.inventory.IInventory;
+import net.minecraft.inventory.ISidedInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntityChest;
+import net.minecraftforge.common.util.ForgeDirection;
+
+/**
+ * Remembers where extraction from one side of an inventory stopped, and which
+ * of the accessible slots of that side hold something.
+ *
+ * Searches start at the slot extracted from last and wrap around, only
+ * visiting slots believed not to be empty. Slots found empty are dropped from
+ * the search, and a few slots are checked again on every refresh, so items
+ * put in by someone else are found after a few pulls without scanning the
+ * whole inventory each time.
+ *
+ * Usage:
+ *
+ * <pre>
+ * cursor.refresh(inventory, from);
+ * for (int pos = cursor.first(); pos >= 0; pos = cursor.next(pos)) {
+ * 	int slot = cursor.getSlot(pos);
+ * 	...
+ * }
+ * </pre>
+ */
+public class ExtractionCursor {
+	/**
+	 * Number of slots checked again on each refresh.
+	 */
+	public static final int REFRESH_SLOTS = 64;
+
+	private IInventory source;
+	private TileEntityChest sourceAdjacent;
+	private ISidedInventory wrapper;
+	/** Inventory the slots were read from, by the last refresh. */
+	private ISidedInventory inventory;
+	private int side = -1;
+	private int[] slots;
+	private final BitSet filled = new BitSet();
+	private int position;
+	private int refreshPosition;
+
+	/**
+	 * Returns the given inventory as seen from a side, reusing the wrapper
+	 * from the previous call when the inventory didn't change. Chests are
+	 * wrapped along with their adjacent chest, if any.
+	 */
+	public ISidedInventory wrap(IInventory object) {
+		if (object instanceof ISidedInventory) {
+			return (ISidedInventory) object;
+		}
+
+		TileEntityChest adjacent = object instanceof TileEntityChest ? InvUtils.getAdjacentChest((TileEntityChest) object) : null;
+
+		if (object != source || adjacent != sourceAdjacent || wrapper == null) {
+			source = object;
+			sourceAdjacent = adjacent;
+			// Both halves of a double chest, not only the one next to the pipe.
+			wrapper = InventoryWrapper.getWrappedInventory(InvUtils.getInventory(object));
+		}
+
+		return wrapper;
+	}
+
+	/**
+	 * Prepares a search of the given inventory. Starts over from the first
+	 * slot if the inventory or side changed since the previous call.
+	 */
+	public void refresh(ISidedInventory sidedInventory, ForgeDirection from) {
+		if (sidedInventory != inventory || from.ordinal() != side || slots == null) {
+			inventory = sidedInventory;
+			side = from.ordinal();
+			slots = inventory.getAccessibleSlotsFromSide(side);
+			filled.clear();
+			position = 0;
+			refreshPosition = 0;
+
+			for (int pos = 0; pos < slots.length; pos++) {
+				check(pos);
+			}
+			return;
+		}
+
+		for (int i = 0; i < REFRESH_SLOTS && i < slots.length; i++) {
+			if (refreshPosition >= slots.length) {
+				refreshPosition = 0;
+				reloadSlots();
+			}
+
+			check(refreshPosition++);
+		}
+	}
+
+	/**
+	 * Returns the first position to look at, or -1 if every slot is believed
+	 * to be empty.
+	 */
+	public int first() {
+		int pos = filled.nextSetBit(position);
+
+		if (pos < 0 && position > 0) {
+			pos = filled.nextSetBit(0);
+
+			if (pos >= position) {
+				return -1;
+			}
+		}
+
+		return pos;
+	}
+
+	/**
+	 * Returns the position following the given one, or -1 once the search
+	 * is back to where it started.
+	 */
+	public int next(int pos) {
+		int next = filled.nextSetBit(pos + 1);
+
+		if (pos >= position) {
+			if (next < 0) {
+				next = filled.nextSetBit(0);
+			} else {
+				return next;
+			}
+		}
+
+		return next >= 0 && next < position ? next : -1;
+	}
+
+	/**
+	 * Returns the inventory slot at the given position.
+	 */
+	public int getSlot(int pos) {
+		return slots[pos];
+	}
+
+	/**
+	 * Drops a position found empty from the search.
+	 */
+	public void markEmpty(int pos) {
+		filled.clear(pos);
+	}
+
+	/**
+	 * Records that items were taken from the given position. The next
+	 * search starts there.
+	 */
+	public void markExtracted(int pos) {
+		position = pos;
+		check(pos);
+	}
+
+	private void check(int pos) {
+		ItemStack stack = inventory.getStackInSlot(slots[pos]);
+		filled.set(pos, stack != null && stack.stackSize > 0);
+	}
+
+	private void reloadSlots() {
+		int[] newSlots = inventory.getAccessibleSlotsFromSide(side);
+
+		if (newSlots.length < slots.length) {
+			filled.clear(newSlots.length, slots.length);
+
+			if (position >= newSlots.length) {
+				position = 0;
+			}
+		}
+
+		slots = newSlots;
+	}
+}
@@ -218,25 +218,7 @@ public final class InvUtils {
 	 */
 	public static IInventory getInventory(IInventory inv) {
 		if (inv instanceof TileEntityChest) {
-			TileEntityChest chest = (TileEntityChest) inv;
-
-			TileEntityChest adjacent = null;
-
-			if (chest.adjacentChestXNeg != null) {
-				adjacent = chest.adjacentChestXNeg;
-			}
-
-			if (chest.adjacentChestXPos != null) {
-				adjacent = chest.adjacentChestXPos;
-			}
-
-			if (chest.adjacentChestZNeg != null) {
-				adjacent = chest.adjacentChestZNeg;
-			}
-
-			if (chest.adjacentChestZPos != null) {
-				adjacent = chest.adjacentChestZPos;
-			}
+			TileEntityChest adjacent = getAdjacentChest((TileEntityChest) inv);
 
 			if (adjacent != null) {
 				return new InventoryLargeChest("", inv, adjacent);
@@ -246,6 +228,31 @@ public final class InvUtils {
 		return inv;
 	}
 
+	/**
+	 * Returns the chest forming a large chest with the given one, or null.
+	 */
+	public static TileEntityChest getAdjacentChest(TileEntityChest chest) {
+		TileEntityChest adjacent = null;
+
+		if (chest.adjacentChestXNeg != null) {
+			adjacent = chest.adjacentChestXNeg;
+		}
+
+		if (chest.adjacentChestXPos != null) {
+			adjacent = chest.adjacentChestXPos;
+		}
+
+		if (chest.adjacentChestZNeg != null) {
+			adjacent = chest.adjacentChestZNeg;
+		}
+
+		if (chest.adjacentChestZPos != null) {
+			adjacent = chest.adjacentChestZPos;
+		}
+
+		return adjacent;
+	}
+
 	public static IInvSlot getItem(IInventory inv, IStackFilter filter) {
 		for (IInvSlot s : InventoryIterator.getIterable(inv)) {
 			if (s.getStackInSlot() != null && filter.matches(s.getStackInSlot())) {
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.core.lib.inventory;
+
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.tileentity.TileEntityChest;
+import cpw.mods.fml.common.FMLCommonHandler;
+import cpw.mods.fml.relauncher.Side;
+
+/**
+ * Remembers which slots of an inventory tile are empty, and which hold a
+ * stack of a given item that isn't full yet. Kept per tile on the server,
+ * and used by {@link TransactorCached}.
+ *
+ * Nothing tells the summary when someone else changes the inventory, so it
+ * is only a hint: slots are checked before being used, and a slot found
+ * different from what the summary says marks it as stale.
+ */
+public class InventorySummary {
+
+	private static final Map<TileEntity, InventorySummary> summaries = new WeakHashMap<TileEntity, InventorySummary>();
+
+	/** Partially filled slots, by item. Damage and NBT are checked on use. */
+	final Map<Item, BitSet> partialSlots = new HashMap<Item, BitSet>();
+	final BitSet emptySlots = new BitSet();
+	long builtTick;
+	boolean stale = true;
+
+	private int size;
+	private WeakReference<TileEntityChest> adjacent;
+
+	/**
+	 * Returns the summary of the given tile, or null if the tile shouldn't
+	 * have one (client side, not a plain inventory tile, or not on the
+	 * server thread).
+	 */
+	public static InventorySummary get(Object object) {
+		if (!(object instanceof TileEntity) || !(object instanceof IInventory)) {
+			return null;
+		}
+
+		TileEntity tile = (TileEntity) object;
+
+		if (tile.getWorldObj() == null || tile.getWorldObj().isRemote || tile.isInvalid()
+				|| FMLCommonHandler.instance().getEffectiveSide() != Side.SERVER) {
+			return null;
+		}
+
+		InventorySummary summary = summaries.get(tile);
+
+		if (summary == null) {
+			summary = new InventorySummary();
+			summaries.put(tile, summary);
+		}
+
+		if (tile instanceof TileEntityChest) {
+			// A chest joining or leaving a large chest changes the slots.
+			TileEntityChest chest = InvUtils.getAdjacentChest((TileEntityChest) tile);
+
+			if (summary.adjacent == null ? chest != null : summary.adjacent.get() != chest) {
+				summary.adjacent = chest != null ? new WeakReference<TileEntityChest>(chest) : null;
+				summary.stale = true;
+			}
+		}
+
+		return summary;
+	}
+
+	/**
+	 * Marks the summary of the given tile as stale, to be used when the
+	 * inventory is known to have changed.
+	 */
+	public static void invalidate(Object object) {
+		InventorySummary summary = summaries.get(object);
+
+		if (summary != null) {
+			summary.stale = true;
+		}
+	}
+
+	boolean isUsable(IInventory inventory) {
+		return !stale && size == inventory.getSizeInventory();
+	}
+
+	void rebuild(IInventory inventory, long tick) {
+		size = inventory.getSizeInventory();
+		emptySlots.clear();
+
+		for (BitSet slots : partialSlots.values()) {
+			slots.clear();
+		}
+
+		for (int slot = 0; slot < size; slot++) {
+			update(inventory, slot, inventory.getStackInSlot(slot));
+		}
+
+		builtTick = tick;
+		stale = false;
+	}
+
+	/**
+	 * Records the new contents of a slot.
+	 */
+	void update(IInventory inventory, int slot, ItemStack stack) {
+		if (stack == null) {
+			emptySlots.set(slot);
+			return;
+		}
+
+		emptySlots.clear(slot);
+
+		BitSet slots = partialSlots.get(stack.getItem());
+
+		if (stack.stackSize < Math.min(stack.getMaxStackSize(), inventory.getInventoryStackLimit())) {
+			if (slots == null) {
+				slots = new BitSet();
+				partialSlots.put(stack.getItem(), slots);
+			}
+			slots.set(slot);
+		} else if (slots != null) {
+			slots.clear(slot);
+		}
+	}
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.core.lib.inventory;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import gnu.trove.map.hash.TIntLongHashMap;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraftforge.oredict.OreDictionary;
+
+import buildcraft.api.items.IList;
+import buildcraft.core.ItemList;
+import buildcraft.core.lib.inventory.filters.ArrayStackOrListFilter;
+import buildcraft.core.lib.inventory.filters.IStackFilter;
+
+/**
+ * A set of up to 64 filter slots, compiled so that finding every slot a stack
+ * matches takes a lookup on its item and damage, plus one on each of its ore
+ * ids, instead of a comparison per slot.
+ *
+ * Matches are returned as a bit mask, bit n being set when slot n matches.
+ * Filters which can't be compiled are kept as {@link IStackFilter}s and
+ * checked one by one.
+ */
+public class StackFilterIndex {
+	public static final int MAX_SLOTS = 64;
+
+	private static final class ItemEntry {
+		public long anyDamage;
+		public long all;
+		public TIntLongHashMap byDamage;
+	}
+
+	private final Map<Item, ItemEntry> items = new HashMap<Item, ItemEntry>();
+	private final TIntLongHashMap ores = new TIntLongHashMap();
+	private final IStackFilter[] filters = new IStackFilter[MAX_SLOTS];
+	private final ItemStack[] plainStacks = new ItemStack[MAX_SLOTS];
+	private long filterSlots;
+	private long plainSlots;
+
+	public void clear() {
+		items.clear();
+		ores.clear();
+
+		for (int i = 0; i < MAX_SLOTS; i++) {
+			filters[i] = null;
+			plainStacks[i] = null;
+		}
+
+		filterSlots = 0;
+		plainSlots = 0;
+	}
+
+	/**
+	 * Adds a filter slot matching like
+	 * {@link StackHelper#isMatchingItemOrList(ItemStack, ItemStack)} with the
+	 * given filter as first argument.
+	 */
+	public void add(int slot, ItemStack filter) {
+		if (filter == null) {
+			return;
+		}
+
+		if (filter.getItem() instanceof ItemList) {
+			for (ItemList.StackLine line : ItemList.getLines(filter)) {
+				line.addTo(this, slot);
+			}
+		} else if (filter.getItem() instanceof IList) {
+			addFilter(slot, new ArrayStackOrListFilter(filter));
+		} else {
+			addStack(slot, filter);
+			plainSlots |= 1L << slot;
+			plainStacks[slot] = filter;
+		}
+	}
+
+	/**
+	 * Adds a filter slot matching like
+	 * {@link StackHelper#isMatchingItem(ItemStack, ItemStack, boolean, boolean)}
+	 * with the given stack as first argument, comparing damage but not NBT.
+	 */
+	public void addStack(int slot, ItemStack stack) {
+		long bit = 1L << slot;
+		ItemEntry entry = items.get(stack.getItem());
+
+		if (entry == null) {
+			entry = new ItemEntry();
+			items.put(stack.getItem(), entry);
+		}
+
+		entry.all |= bit;
+
+		if (!stack.getHasSubtypes() || StackHelper.isWildcard(stack)) {
+			entry.anyDamage |= bit;
+		} else {
+			if (entry.byDamage == null) {
+				entry.byDamage = new TIntLongHashMap();
+			}
+
+			entry.byDamage.put(stack.getItemDamage(), entry.byDamage.get(stack.getItemDamage()) | bit);
+		}
+	}
+
+	/**
+	 * Adds a filter slot matching stacks registered under the given ore id.
+	 */
+	public void addOre(int slot, int oreId) {
+		ores.put(oreId, ores.get(oreId) | (1L << slot));
+	}
+
+	/**
+	 * Adds a filter slot which has to be checked on its own.
+	 */
+	public void addFilter(int slot, IStackFilter filter) {
+		filters[slot] = filter;
+		filterSlots |= 1L << slot;
+	}
+
+	/**
+	 * Returns the mask of the slots the given stack matches.
+	 */
+	public long getMatches(ItemStack stack) {
+		if (stack == null || stack.getItem() == null) {
+			return 0;
+		}
+
+		long matches = 0;
+		ItemEntry entry = items.get(stack.getItem());
+
+		if (entry != null) {
+			if (StackHelper.isWildcard(stack)) {
+				matches |= entry.all;
+			} else {
+				matches |= entry.anyDamage;
+
+				if (entry.byDamage != null) {
+					matches |= entry.byDamage.get(stack.getItemDamage());
+				}
+			}
+		}
+
+		if (!ores.isEmpty()) {
+			for (int id : OreDictionary.getOreIDs(stack)) {
+				matches |= ores.get(id);
+			}
+		}
+
+		for (long left = filterSlots & ~matches; left != 0; left &= left - 1) {
+			int slot = Long.numberOfTrailingZeros(left);
+
+			if (filters[slot].matches(stack)) {
+				matches |= 1L << slot;
+			}
+		}
+
+		if (plainSlots != 0 && stack.getItem() instanceof IList) {
+			// Item lists compared to a plain filter are the ones matching.
+			IList list = (IList) stack.getItem();
+			matches &= ~plainSlots;
+
+			for (long left = plainSlots; left != 0; left &= left - 1) {
+				int slot = Long.numberOfTrailingZeros(left);
+
+				if (list.matches(stack, plainStacks[slot])) {
+					matches |= 1L << slot;
+				}
+			}
+		}
+
+		return matches;
+	}
+}
@@ -11,6 +11,7 @@ package buildcraft.core.lib.inventory;
 import net.minecraft.inventory.IInventory;
 import net.minecraft.inventory.ISidedInventory;
 import net.minecraft.item.ItemStack;
+import net.minecraft.tileentity.TileEntity;
 import net.minecraftforge.common.util.ForgeDirection;
 
 public abstract class Transactor implements ITransactor {
@@ -29,7 +30,13 @@ public abstract class Transactor implements ITransactor {
 		if (object instanceof ISidedInventory) {
 			return new TransactorSimple((ISidedInventory) object);
 		} else if (object instanceof IInventory) {
-			return new TransactorSimple(InvUtils.getInventory((IInventory) object));
+			IInventory inventory = InvUtils.getInventory((IInventory) object);
+			InventorySummary summary = InventorySummary.get(object);
+
+			if (summary != null) {
+				return new TransactorCached(inventory, summary, ((TileEntity) object).getWorldObj());
+			}
+			return new TransactorSimple(inventory);
 		}
 
 		return null;
@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.core.lib.inventory;
+
+import java.util.BitSet;
+
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.ItemStack;
+import net.minecraft.world.World;
+import net.minecraftforge.common.util.ForgeDirection;
+
+import buildcraft.core.lib.inventory.filters.IStackFilter;
+
+/**
+ * Transactor for plain inventories which only looks at the slots an
+ * {@link InventorySummary} lists as partially filled with the same item, then
+ * at the empty ones, instead of scanning every slot. With an up to date
+ * summary, slots are filled in the same order as {@link TransactorSimple}.
+ *
+ * As the summary may be out of date, an insertion that doesn't fully fit is
+ * retried on a fresh summary, unless the summary was built during this tick.
+ * Space freed by someone else during that same tick is thus only seen on the
+ * next one.
+ */
+public class TransactorCached extends TransactorSimple {
+
+	private final InventorySummary summary;
+	private final World world;
+
+	public TransactorCached(IInventory inventory, InventorySummary summary, World world) {
+		super(inventory);
+		this.summary = summary;
+		this.world = world;
+	}
+
+	@Override
+	public int inject(ItemStack stack, ForgeDirection orientation, boolean doAdd) {
+		long tick = world.getTotalWorldTime();
+
+		if (!summary.isUsable(inventory)) {
+			summary.rebuild(inventory, tick);
+		}
+
+		int injected = putInSlots(stack, 0, doAdd);
+
+		if (injected < stack.stackSize && (summary.stale || summary.builtTick != tick)) {
+			summary.rebuild(inventory, tick);
+			// Nothing was moved when simulating, start over.
+			injected = putInSlots(stack, doAdd ? injected : 0, doAdd);
+		}
+
+		if (doAdd) {
+			// Simulations change nothing, and would wake every pipe around.
+			inventory.markDirty();
+		}
+		return injected;
+	}
+
+	private int putInSlots(ItemStack stack, int injected, boolean doAdd) {
+		int realInjected = injected;
+		int max = Math.min(stack.getMaxStackSize(), inventory.getInventoryStackLimit());
+		BitSet partial = summary.partialSlots.get(stack.getItem());
+
+		if (partial != null) {
+			for (int slot = partial.nextSetBit(0); slot >= 0 && realInjected < stack.stackSize; slot = partial.nextSetBit(slot + 1)) {
+				ItemStack stackInSlot = inventory.getStackInSlot(slot);
+
+				if (stackInSlot == null || stackInSlot.getItem() != stack.getItem()) {
+					summary.stale = true;
+					continue;
+				}
+
+				if (!StackHelper.canStacksMerge(stackInSlot, stack) || !inventory.isItemValidForSlot(slot, stack)) {
+					continue;
+				}
+
+				int wanted = Math.min(max - stackInSlot.stackSize, stack.stackSize - realInjected);
+
+				if (wanted <= 0) {
+					continue;
+				}
+
+				if (doAdd) {
+					stackInSlot.stackSize += wanted;
+					inventory.setInventorySlotContents(slot, stackInSlot);
+					summary.update(inventory, slot, stackInSlot);
+				}
+				realInjected += wanted;
+			}
+		}
+
+		for (int slot = summary.emptySlots.nextSetBit(0); slot >= 0 && realInjected < stack.stackSize; slot = summary.emptySlots.nextSetBit(slot + 1)) {
+			if (inventory.getStackInSlot(slot) != null) {
+				summary.stale = true;
+				continue;
+			}
+
+			if (!inventory.isItemValidForSlot(slot, stack)) {
+				continue;
+			}
+
+			int wanted = Math.min(stack.stackSize - realInjected, max);
+
+			if (doAdd) {
+				ItemStack stackInSlot = stack.copy();
+				stackInSlot.stackSize = wanted;
+				inventory.setInventorySlotContents(slot, stackInSlot);
+				summary.update(inventory, slot, stackInSlot);
+			}
+			realInjected += wanted;
+		}
+
+		return realInjected;
+	}
+
+	@Override
+	public ItemStack remove(IStackFilter filter, ForgeDirection orientation, boolean doRemove) {
+		ItemStack removed = super.remove(filter, orientation, doRemove);
+
+		if (doRemove && removed != null) {
+			summary.stale = true;
+		}
+
+		return removed;
+	}
+}
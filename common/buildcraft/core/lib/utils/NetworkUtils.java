@@ -100,6 +100,35 @@ public final class NetworkUtils {
 		}
 	}
 
+	/**
+	 * Writes an int using 7 bits per byte, so small non-negative values take
+	 * fewer than four bytes. Negative values always take five.
+	 */
+	public static void writeVarInt(ByteBuf data, int value) {
+		int v = value;
+
+		while ((v & ~0x7F) != 0) {
+			data.writeByte((v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+
+		data.writeByte(v);
+	}
+
+	public static int readVarInt(ByteBuf data) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+
+		do {
+			b = data.readByte();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0 && shift < 35);
+
+		return value;
+	}
+
 	public static void writeByteArray(ByteBuf stream, byte[] data) {
 		stream.writeInt(data.length);
 		stream.writeBytes(data);
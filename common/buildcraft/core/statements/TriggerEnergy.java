@@ -21,10 +21,11 @@ import cofh.api.energy.IEnergyReceiver;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerInternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.api.transport.IPipeTile;
 import buildcraft.core.lib.utils.StringUtils;
 
-public class TriggerEnergy extends BCStatement implements ITriggerInternal {
+public class TriggerEnergy extends BCStatement implements ITriggerInternal, ITriggerRecheck {
 	public static class Neighbor {
 		public TileEntity tile;
 		public ForgeDirection side;
@@ -140,4 +141,14 @@ public class TriggerEnergy extends BCStatement implements ITriggerInternal {
 		}
 		return null;
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.PERIODIC;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 10;
+	}
 }
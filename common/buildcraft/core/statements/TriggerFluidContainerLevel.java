@@ -21,10 +21,11 @@ import net.minecraftforge.fluids.IFluidHandler;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerExternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.api.statements.StatementParameterItemStack;
 import buildcraft.core.lib.utils.StringUtils;
 
-public class TriggerFluidContainerLevel extends BCStatement implements ITriggerExternal {
+public class TriggerFluidContainerLevel extends BCStatement implements ITriggerExternal, ITriggerRecheck {
 
 	public enum TriggerType {
 
@@ -105,4 +106,14 @@ public class TriggerFluidContainerLevel extends BCStatement implements ITriggerE
 	public IStatementParameter createParameter(int index) {
 		return new StatementParameterItemStack();
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.PERIODIC;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 10;
+	}
 }
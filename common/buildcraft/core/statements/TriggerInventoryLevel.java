@@ -20,12 +20,13 @@ import buildcraft.api.core.IInvSlot;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerExternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.api.statements.StatementParameterItemStack;
 import buildcraft.core.lib.inventory.InventoryIterator;
 import buildcraft.core.lib.inventory.StackHelper;
 import buildcraft.core.lib.utils.StringUtils;
 
-public class TriggerInventoryLevel extends BCStatement implements ITriggerExternal {
+public class TriggerInventoryLevel extends BCStatement implements ITriggerExternal, ITriggerRecheck {
 
 	public enum TriggerType {
 
@@ -106,4 +107,14 @@ public class TriggerInventoryLevel extends BCStatement implements ITriggerExtern
 	public IStatementParameter createParameter(int index) {
 		return new StatementParameterItemStack();
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.NEIGHBOR_CHANGE;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 0;
+	}
 }
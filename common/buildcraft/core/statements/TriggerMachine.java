@@ -15,10 +15,11 @@ import net.minecraftforge.common.util.ForgeDirection;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerExternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.api.tiles.IHasWork;
 import buildcraft.core.lib.utils.StringUtils;
 
-public class TriggerMachine extends BCStatement implements ITriggerExternal {
+public class TriggerMachine extends BCStatement implements ITriggerExternal, ITriggerRecheck {
 
 	boolean active;
 
@@ -52,4 +53,14 @@ public class TriggerMachine extends BCStatement implements ITriggerExternal {
 	public void registerIcons(IIconRegister register) {
 		icon = register.registerIcon("buildcraftcore:triggers/trigger_machine_" + (active ? "active" : "inactive"));
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.PERIODIC;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 10;
+	}
 }
@@ -14,11 +14,12 @@ import net.minecraftforge.common.util.ForgeDirection;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerInternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.api.statements.containers.IRedstoneStatementContainer;
 import buildcraft.api.statements.containers.ISidedStatementContainer;
 import buildcraft.core.lib.utils.StringUtils;
 
-public class TriggerRedstoneInput extends BCStatement implements ITriggerInternal {
+public class TriggerRedstoneInput extends BCStatement implements ITriggerInternal, ITriggerRecheck {
 
 	boolean active;
 
@@ -68,4 +69,14 @@ public class TriggerRedstoneInput extends BCStatement implements ITriggerInterna
 	public void registerIcons(IIconRegister register) {
 		icon = register.registerIcon("buildcraftcore:triggers/trigger_redstoneinput_" + (active ? "active" : "inactive"));
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.NEIGHBOR_CHANGE;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 0;
+	}
 }
@@ -19,12 +19,13 @@ import net.minecraftforge.common.util.ForgeDirection;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerExternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.core.lib.engines.TileEngineBase;
 import buildcraft.core.lib.engines.TileEngineBase.EnergyStage;
 import buildcraft.core.lib.utils.StringUtils;
 import buildcraft.core.statements.BCStatement;
 
-public class TriggerEngineHeat extends BCStatement implements ITriggerExternal {
+public class TriggerEngineHeat extends BCStatement implements ITriggerExternal, ITriggerRecheck {
 
 	public EnergyStage stage;
 
@@ -55,4 +56,14 @@ public class TriggerEngineHeat extends BCStatement implements ITriggerExternal {
 	public void registerIcons(IIconRegister iconRegister) {
 		icon = iconRegister.registerIcon("buildcraftenergy:triggers/trigger_engineheat_" + stage.name().toLowerCase(Locale.ENGLISH));
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.PERIODIC;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 10;
+	}
 }
@@ -135,6 +135,11 @@ public class RobotStationPluggable extends PipePluggable implements IPipePluggab
 		return true;
 	}
 
+	@Override
+	public boolean requiresUpdates() {
+		return false;
+	}
+
 	@Override
 	public void invalidate() {
 		if (station != null
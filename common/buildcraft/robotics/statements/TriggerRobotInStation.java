@@ -16,12 +16,13 @@ import buildcraft.api.robots.DockingStation;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerInternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.core.lib.utils.StringUtils;
 import buildcraft.core.statements.BCStatement;
 import buildcraft.robotics.EntityRobot;
 import buildcraft.robotics.RobotUtils;
 
-public class TriggerRobotInStation extends BCStatement implements ITriggerInternal {
+public class TriggerRobotInStation extends BCStatement implements ITriggerInternal, ITriggerRecheck {
 
 	public TriggerRobotInStation() {
 		super("buildcraft:robot.in.station");
@@ -53,4 +54,14 @@ public class TriggerRobotInStation extends BCStatement implements ITriggerIntern
 
 		return false;
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.PERIODIC;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 10;
+	}
 }
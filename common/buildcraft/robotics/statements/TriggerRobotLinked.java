@@ -16,11 +16,12 @@ import buildcraft.api.robots.DockingStation;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerInternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.core.lib.utils.StringUtils;
 import buildcraft.core.statements.BCStatement;
 import buildcraft.robotics.RobotUtils;
 
-public class TriggerRobotLinked extends BCStatement implements ITriggerInternal {
+public class TriggerRobotLinked extends BCStatement implements ITriggerInternal, ITriggerRecheck {
 	private final boolean reserved;
 
 	public TriggerRobotLinked(boolean reserved) {
@@ -50,4 +51,14 @@ public class TriggerRobotLinked extends BCStatement implements ITriggerInternal
 
 		return false;
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.PERIODIC;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 10;
+	}
 }
@@ -727,7 +727,6 @@ public class BlockGenericPipe extends BlockBuildCraft implements IColorRemovable
 	private boolean addWire(Pipe<?> pipe, PipeWire color) {
 		if (!pipe.wireSet[color.ordinal()]) {
 			pipe.wireSet[color.ordinal()] = true;
-			pipe.signalStrength[color.ordinal()] = 0;
 
 			pipe.updateSignalState();
 			pipe.container.scheduleRenderUpdate();
@@ -742,7 +741,6 @@ public class BlockGenericPipe extends BlockBuildCraft implements IColorRemovable
 				dropWire(color, pipe, player);
 			}
 
-			pipe.signalStrength[color.ordinal()] = 0;
 			pipe.wireSet[color.ordinal()] = false;
 
 			pipe.updateSignalState();
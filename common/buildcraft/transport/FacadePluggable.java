@@ -84,6 +84,11 @@ public class FacadePluggable extends PipePluggable implements IFacadePluggable {
 		return !isHollow();
 	}
 
+	@Override
+	public boolean requiresUpdates() {
+		return false;
+	}
+
 	@Override
 	public Block getCurrentBlock() {
 		prepareStates();
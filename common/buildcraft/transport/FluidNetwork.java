@@ -0,0 +1,508 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.transport;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+import net.minecraftforge.common.util.ForgeDirection;
+import net.minecraftforge.fluids.FluidStack;
+import net.minecraftforge.fluids.IFluidHandler;
+
+import buildcraft.transport.pipes.PipeFluidsCobblestone;
+import buildcraft.transport.pipes.PipeFluidsGold;
+import buildcraft.transport.pipes.PipeFluidsQuartz;
+import buildcraft.transport.pipes.PipeFluidsStone;
+import buildcraft.transport.pipes.events.PipeEventFluid;
+
+/**
+ * A connected group of plain fluid pipes carrying the same fluid, solved as
+ * a whole once per tick instead of pipe by pipe.
+ *
+ * Each pipe is a single node holding an amount of fluid. Every tick, fluid
+ * moves one pipe closer to the nearest outputs (tanks, machines, or pipes
+ * which aren't part of the network), limited by the flow rate of the pipes
+ * on both ends. As with single pipes, an output refusing fluid OUTPUT_TTL
+ * times in a row is left alone for OUTPUT_COOLDOWN ticks, and fluid isn't
+ * pushed back into a side it came from for INPUT_TTL ticks.
+ *
+ * The sections of a pipe are only written back when the pipe is rendered,
+ * saved or inspected, and when the network is broken up.
+ */
+public final class FluidNetwork {
+	private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+	private final World world;
+	private final PipeTransportFluids[] pipes;
+	private final int[] amount;
+	private final int[] capacity;
+	private final int[] flowRate;
+	private final int[] inflow;
+
+	/** Pipes each pipe may push to, from edges[edgeStart[n]] to edges[edgeStart[n + 1] - 1]. */
+	private final int[] edgeStart;
+	private final int[] edges;
+	/** Pipes which may push to each pipe, laid out as the edges. */
+	private final int[] sourceStart;
+	private final int[] sources;
+
+	/** Outputs of each pipe, from sinkStart[n] to sinkStart[n + 1] - 1. */
+	private final int[] sinkStart;
+	private final byte[] sinkSide;
+	private final short[] sinkTTL;
+	private final long[] sinkCooldown;
+	private final long[] inputTimeout;
+
+	/** Pipes in order of distance to an output, orderSize first ones only. */
+	private final int[] order;
+	private final int[] distance;
+	private int orderSize;
+
+	private FluidStack fluid;
+	private int total;
+	private boolean valid = true;
+	private boolean distancesDirty = true;
+	private long lastUpdate = -1;
+
+	private FluidNetwork(World world, ArrayList<PipeTransportFluids> members, FluidStack fluid) {
+		int size = members.size();
+
+		this.world = world;
+		this.fluid = fluid;
+		pipes = members.toArray(new PipeTransportFluids[size]);
+		amount = new int[size];
+		capacity = new int[size];
+		flowRate = new int[size];
+		inflow = new int[size];
+		edgeStart = new int[size + 1];
+		sourceStart = new int[size + 1];
+		sinkStart = new int[size + 1];
+		inputTimeout = new long[size * 6];
+		order = new int[size];
+		distance = new int[size];
+
+		Map<PipeTransportFluids, Integer> index = new IdentityHashMap<PipeTransportFluids, Integer>();
+
+		for (int i = 0; i < size; i++) {
+			index.put(pipes[i], i);
+		}
+
+		TIntArrayList edgeList = new TIntArrayList();
+		TIntArrayList sinkList = new TIntArrayList();
+		int[] sourceCount = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			PipeTransportFluids pipe = pipes[i];
+			TileGenericPipe tile = pipe.container;
+			int connections = 0;
+
+			edgeStart[i] = edgeList.size();
+			sinkStart[i] = sinkList.size();
+
+			for (ForgeDirection side : ForgeDirection.VALID_DIRECTIONS) {
+				if (!tile.isPipeConnected(side)) {
+					continue;
+				}
+
+				connections++;
+
+				PipeTransportFluids other = getMember(tile, side);
+				Integer otherIndex = other != null ? index.get(other) : null;
+
+				if (otherIndex != null) {
+					if (pipe.outputOpen(side) && other.inputOpen(side.getOpposite())) {
+						edgeList.add(otherIndex);
+						sourceCount[otherIndex]++;
+					}
+				} else if (pipe.canOutput(side)) {
+					sinkList.add(side.ordinal());
+				}
+			}
+
+			amount[i] = pipe.joinNetwork(this, i);
+			capacity[i] = Math.max(pipe.getCapacity() * (1 + connections), amount[i]);
+			flowRate[i] = pipe.getFlowRate();
+			total += amount[i];
+		}
+
+		edgeStart[size] = edgeList.size();
+		sinkStart[size] = sinkList.size();
+		edges = edgeList.toArray();
+
+		sources = new int[edges.length];
+
+		for (int i = 0; i < size; i++) {
+			sourceStart[i + 1] = sourceStart[i] + sourceCount[i];
+		}
+
+		int[] sourceFill = new int[size];
+
+		for (int i = 0; i < size; i++) {
+			for (int e = edgeStart[i]; e < edgeStart[i + 1]; e++) {
+				int target = edges[e];
+				sources[sourceStart[target] + sourceFill[target]++] = i;
+			}
+		}
+
+		sinkSide = new byte[sinkList.size()];
+		sinkTTL = new short[sinkList.size()];
+		sinkCooldown = new long[sinkList.size()];
+
+		for (int s = 0; s < sinkSide.length; s++) {
+			sinkSide[s] = (byte) sinkList.get(s);
+			sinkTTL[s] = PipeTransportFluids.OUTPUT_TTL;
+		}
+	}
+
+	/**
+	 * Returns true if the pipe may be handled as part of a network. Only
+	 * pipes which don't change how fluids move qualify.
+	 */
+	public static boolean isEligible(Pipe<?> pipe) {
+		Class<?> pipeClass = pipe.getClass();
+
+		if (pipeClass != PipeFluidsCobblestone.class && pipeClass != PipeFluidsStone.class
+				&& pipeClass != PipeFluidsQuartz.class && pipeClass != PipeFluidsGold.class) {
+			return false;
+		}
+
+		for (Gate gate : pipe.gates) {
+			if (gate != null) {
+				return false;
+			}
+		}
+
+		return !pipe.eventBus.hasHandlers(PipeEventFluid.FindDest.class);
+	}
+
+	/**
+	 * Builds the network the given pipe belongs to, made of all the eligible
+	 * pipes connected to it and holding the same fluid, or no fluid.
+	 */
+	public static FluidNetwork build(TileGenericPipe start) {
+		PipeTransportFluids first = (PipeTransportFluids) start.pipe.transport;
+		ArrayList<PipeTransportFluids> members = new ArrayList<PipeTransportFluids>();
+		Map<PipeTransportFluids, Boolean> visited = new IdentityHashMap<PipeTransportFluids, Boolean>();
+		FluidStack fluid = first.fluidType;
+
+		members.add(first);
+		visited.put(first, Boolean.TRUE);
+
+		for (int i = 0; i < members.size(); i++) {
+			TileGenericPipe tile = members.get(i).container;
+
+			for (ForgeDirection side : ForgeDirection.VALID_DIRECTIONS) {
+				PipeTransportFluids other = getMember(tile, side);
+
+				if (other == null || visited.containsKey(other)) {
+					continue;
+				}
+
+				FluidNetwork otherNetwork = other.getNetwork();
+				FluidStack otherFluid = otherNetwork != null ? otherNetwork.fluid : other.fluidType;
+
+				if (otherFluid != null) {
+					if (fluid == null) {
+						fluid = new FluidStack(otherFluid, 0);
+					} else if (!fluid.isFluidEqual(otherFluid)) {
+						continue;
+					}
+				}
+
+				if (otherNetwork != null) {
+					// Merged into this one.
+					otherNetwork.invalidate();
+				}
+
+				members.add(other);
+				visited.put(other, Boolean.TRUE);
+			}
+		}
+
+		return new FluidNetwork(start.getWorldObj(), members, fluid != null ? new FluidStack(fluid, 0) : null);
+	}
+
+	private static PipeTransportFluids getMember(TileGenericPipe tile, ForgeDirection side) {
+		if (!tile.isPipeConnected(side)) {
+			return null;
+		}
+
+		TileEntity other = tile.getTile(side);
+
+		if (!(other instanceof TileGenericPipe)) {
+			return null;
+		}
+
+		TileGenericPipe otherTile = (TileGenericPipe) other;
+
+		if (!BlockGenericPipe.isValid(otherTile.pipe) || !(otherTile.pipe.transport instanceof PipeTransportFluids)
+				|| !otherTile.isPipeConnected(side.getOpposite()) || !isEligible(otherTile.pipe)) {
+			return null;
+		}
+
+		return (PipeTransportFluids) otherTile.pipe.transport;
+	}
+
+	public boolean isValid() {
+		return valid;
+	}
+
+	public int size() {
+		return pipes.length;
+	}
+
+	/**
+	 * Moves the fluid of the network. Called by every pipe of the network
+	 * on each of its updates, only the first call of a tick does anything.
+	 */
+	public void update() {
+		long now = world.getTotalWorldTime();
+
+		if (!valid || now == lastUpdate) {
+			return;
+		}
+
+		lastUpdate = now;
+
+		for (int s = 0; s < sinkCooldown.length; s++) {
+			if (sinkCooldown[s] != 0 && sinkCooldown[s] <= now) {
+				sinkCooldown[s] = 0;
+				sinkTTL[s] = PipeTransportFluids.OUTPUT_TTL;
+				distancesDirty = true;
+			}
+		}
+
+		if (distancesDirty) {
+			computeDistances();
+		}
+
+		if (fluid != null) {
+			for (int k = 0; k < orderSize; k++) {
+				int node = order[k];
+				int budget = Math.min(amount[node], flowRate[node]);
+
+				if (budget <= 0) {
+					continue;
+				}
+
+				if (distance[node] == 0) {
+					pushToOutputs(node, budget, now);
+				} else {
+					pushDownstream(node, budget);
+				}
+			}
+
+			if (total <= 0) {
+				total = 0;
+				fluid = null;
+			}
+		}
+
+		for (int i = 0; i < inflow.length; i++) {
+			inflow[i] = 0;
+		}
+	}
+
+	/**
+	 * Sorts the pipes by their distance to the closest output currently
+	 * accepting fluid, going backwards from the outputs.
+	 */
+	private void computeDistances() {
+		distancesDirty = false;
+		orderSize = 0;
+
+		for (int i = 0; i < pipes.length; i++) {
+			distance[i] = UNREACHABLE;
+
+			for (int s = sinkStart[i]; s < sinkStart[i + 1]; s++) {
+				if (sinkCooldown[s] == 0) {
+					distance[i] = 0;
+					order[orderSize++] = i;
+					break;
+				}
+			}
+		}
+
+		for (int k = 0; k < orderSize; k++) {
+			int node = order[k];
+
+			for (int e = sourceStart[node]; e < sourceStart[node + 1]; e++) {
+				int source = sources[e];
+
+				if (distance[source] == UNREACHABLE) {
+					distance[source] = distance[node] + 1;
+					order[orderSize++] = source;
+				}
+			}
+		}
+	}
+
+	private void pushToOutputs(int node, int budget, long now) {
+		int count = 0;
+
+		for (int s = sinkStart[node]; s < sinkStart[node + 1]; s++) {
+			if (isSinkOpen(node, s, now)) {
+				count++;
+			}
+		}
+
+		if (count == 0) {
+			return;
+		}
+
+		int share = budget / count;
+		int extra = budget % count;
+		TileGenericPipe tile = pipes[node].container;
+
+		for (int s = sinkStart[node]; s < sinkStart[node + 1]; s++) {
+			if (!isSinkOpen(node, s, now)) {
+				continue;
+			}
+
+			int toPush = share;
+
+			if (extra > 0) {
+				toPush++;
+				extra--;
+			}
+
+			if (toPush <= 0) {
+				continue;
+			}
+
+			ForgeDirection side = ForgeDirection.getOrientation(sinkSide[s]);
+			TileEntity target = tile.getTile(side);
+			int filled = 0;
+
+			if (target instanceof IFluidHandler) {
+				filled = ((IFluidHandler) target).fill(side.getOpposite(), new FluidStack(fluid, toPush), true);
+			}
+
+			if (filled > 0) {
+				amount[node] -= filled;
+				total -= filled;
+				sinkTTL[s] = PipeTransportFluids.OUTPUT_TTL;
+			} else if (--sinkTTL[s] <= 0) {
+				sinkCooldown[s] = now + PipeTransportFluids.OUTPUT_COOLDOWN;
+				distancesDirty = true;
+			}
+		}
+	}
+
+	private boolean isSinkOpen(int node, int sink, long now) {
+		return sinkCooldown[sink] == 0 && inputTimeout[node * 6 + sinkSide[sink]] <= now;
+	}
+
+	/**
+	 * Splits the fluid a pipe may move between its neighbours one step
+	 * closer to an output. These were handled earlier in the tick, so the
+	 * room they made is already free.
+	 */
+	private void pushDownstream(int node, int budget) {
+		int next = distance[node] - 1;
+		int count = 0;
+
+		for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+			if (distance[edges[e]] == next) {
+				count++;
+			}
+		}
+
+		if (count == 0) {
+			return;
+		}
+
+		int share = budget / count;
+		int extra = budget % count;
+
+		for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+			int target = edges[e];
+
+			if (distance[target] != next) {
+				continue;
+			}
+
+			int toPush = share;
+
+			if (extra > 0) {
+				toPush++;
+				extra--;
+			}
+
+			toPush = Math.min(toPush, Math.min(flowRate[target], capacity[target] - amount[target]));
+
+			if (toPush > 0) {
+				amount[node] -= toPush;
+				amount[target] += toPush;
+			}
+		}
+	}
+
+	/**
+	 * Fills the given pipe of the network, see
+	 * {@link IFluidHandler#fill(ForgeDirection, FluidStack, boolean)}.
+	 */
+	public int fill(int node, ForgeDirection from, FluidStack resource, boolean doFill) {
+		if (!valid || (fluid != null && !resource.isFluidEqual(fluid))) {
+			return 0;
+		}
+
+		int filled = Math.min(resource.amount,
+				Math.min(capacity[node] - amount[node], flowRate[node] - inflow[node]));
+
+		if (filled <= 0) {
+			return 0;
+		}
+
+		if (doFill) {
+			if (fluid == null) {
+				fluid = new FluidStack(resource, 0);
+			}
+
+			amount[node] += filled;
+			inflow[node] += filled;
+			total += filled;
+
+			if (from != ForgeDirection.UNKNOWN) {
+				inputTimeout[node * 6 + from.ordinal()] = world.getTotalWorldTime() + PipeTransportFluids.INPUT_TTL;
+			}
+		}
+
+		return filled;
+	}
+
+	/**
+	 * Writes the fluid held by the given pipe of the network back into its
+	 * sections.
+	 */
+	public void writeBack(int node) {
+		pipes[node].loadNetworkFluid(fluid, amount[node]);
+	}
+
+	/**
+	 * Breaks the network up, writing the fluid held back into every pipe.
+	 * Pipes build a new network on their next update.
+	 */
+	public void invalidate() {
+		if (!valid) {
+			return;
+		}
+
+		valid = false;
+
+		for (int i = 0; i < pipes.length; i++) {
+			pipes[i].leaveNetwork(fluid, amount[i]);
+		}
+	}
+}
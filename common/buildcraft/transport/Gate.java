@@ -36,6 +36,7 @@ import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerExternal;
 import buildcraft.api.statements.ITriggerExternalOverride;
 import buildcraft.api.statements.ITriggerInternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.api.statements.StatementManager;
 import buildcraft.api.statements.StatementParameterItemStack;
 import buildcraft.api.statements.StatementSlot;
@@ -85,6 +86,16 @@ public final class Gate implements IGate, ISidedStatementContainer, IRedstoneSta
 	private HashMultiset<IStatement> statementCounts = HashMultiset.create();
 	private int[] actionGroups = new int [] {0, 1, 2, 3, 4, 5, 6, 7};
 
+	/**
+	 * When gates schedule their updates, they're only resolved when one of
+	 * their triggers may have changed, as told by {@link ITriggerRecheck}.
+	 */
+	private boolean resolutionNeeded = true;
+	private boolean recheckEveryTick = false;
+	private boolean recheckOnWireChange = false;
+	private int recheckInterval = 0;
+	private long nextRecheck = 0;
+
 	// / CONSTRUCTOR
 	public Gate(Pipe<?> pipe, GateMaterial material, GateLogic logic, ForgeDirection direction) {
 		this.pipe = pipe;
@@ -104,6 +115,8 @@ public final class Gate implements IGate, ISidedStatementContainer, IRedstoneSta
 			}
 		}
 		triggers[position] = trigger;
+
+		recalculateRecheckPolicy();
 	}
 
 	public IStatement getTrigger(int position) {
@@ -129,6 +142,7 @@ public final class Gate implements IGate, ISidedStatementContainer, IRedstoneSta
 		actions[position] = action;
 
 		recalculateActionGroups();
+		markForResolution();
 	}
 
 	public IStatement getAction(int position) {
@@ -137,12 +151,15 @@ public final class Gate implements IGate, ISidedStatementContainer, IRedstoneSta
 
 	public void setTriggerParameter(int trigger, int param, IStatementParameter p) {
 		triggerParameters[trigger][param] = p;
+
+		markForResolution();
 	}
 
 	public void setActionParameter(int action, int param, IStatementParameter p) {
 		actionParameters[action][param] = p;
 
 		recalculateActionGroups();
+		markForResolution();
 	}
 
 	public IStatementParameter getTriggerParameter(int trigger, int param) {
@@ -164,6 +181,7 @@ public final class Gate implements IGate, ISidedStatementContainer, IRedstoneSta
 	public void addGateExpansion(IGateExpansion expansion) {
 		if (!expansions.containsKey(expansion)) {
 			expansions.put(expansion, expansion.makeController(pipe != null ? pipe.container : null));
+			markForResolution();
 		}
 	}
 	
@@ -269,6 +287,7 @@ public final class Gate implements IGate, ISidedStatementContainer, IRedstoneSta
 		}
 
 		recalculateActionGroups();
+		recalculateRecheckPolicy();
 	}
 	
 	public boolean verifyGateStatements() {
@@ -303,6 +322,7 @@ public final class Gate implements IGate, ISidedStatementContainer, IRedstoneSta
 
 		if (warning) {
 			recalculateActionGroups();
+			recalculateRecheckPolicy();
 		}
 
 		return !warning;
@@ -384,7 +404,65 @@ public final class Gate implements IGate, ISidedStatementContainer, IRedstoneSta
 		}
 	}
 
+	/**
+	 * Returns true if the gate has to be resolved on the given tick, when
+	 * gates schedule their updates.
+	 */
+	public boolean needsResolution(long time) {
+		return resolutionNeeded || recheckEveryTick || (recheckInterval > 0 && time >= nextRecheck);
+	}
+
+	/**
+	 * Returns the tick the gate has to be resolved on at the latest, or
+	 * Long.MAX_VALUE if only changes around it matter.
+	 */
+	public long getNextRecheck() {
+		return recheckInterval > 0 ? nextRecheck : Long.MAX_VALUE;
+	}
+
+	/**
+	 * Returns true if the gate has nothing to do until something happens to
+	 * its pipe, or until {@link #getNextRecheck()}.
+	 */
+	public boolean isIdle() {
+		return BuildCraftTransport.gateScheduling && !resolutionNeeded && !recheckEveryTick && expansions.isEmpty();
+	}
+
+	/**
+	 * Makes the gate resolve its actions again on the next tick.
+	 */
+	public void markForResolution() {
+		resolutionNeeded = true;
+
+		if (pipe != null && pipe.container != null) {
+			pipe.container.wakeUp();
+		}
+	}
+
+	/**
+	 * Called when a block or tile next to the pipe changed. External
+	 * actions also have to reach new neighbours, so this always counts.
+	 */
+	public void onNeighborChange() {
+		resolutionNeeded = true;
+	}
+
+	/**
+	 * Called when a wire signal of the pipe was turned on or off.
+	 */
+	public void onWireSignalChange() {
+		if (recheckOnWireChange) {
+			resolutionNeeded = true;
+		}
+	}
+
 	public void resolveActions() {
+		resolutionNeeded = false;
+
+		if (recheckInterval > 0) {
+			nextRecheck = pipe.container.getWorldObj().getTotalWorldTime() + recheckInterval;
+		}
+
 		int oldRedstoneOutput = redstoneOutput;
 		redstoneOutput = 0;
 		
@@ -500,7 +578,7 @@ public final class Gate implements IGate, ISidedStatementContainer, IRedstoneSta
 		}
 
 		if (!prevBroadcastSignal.equals(broadcastSignal)) {
-			pipe.updateSignalState();
+			pipe.updateWireEmitters();
 		}
 
 		boolean isActive = activeActions.size() > 0;
@@ -645,6 +723,43 @@ public final class Gate implements IGate, ISidedStatementContainer, IRedstoneSta
 		}
 	}
 
+	private void recalculateRecheckPolicy() {
+		recheckEveryTick = false;
+		recheckOnWireChange = false;
+		recheckInterval = 0;
+
+		for (IStatement trigger : triggers) {
+			if (trigger == null) {
+				continue;
+			}
+
+			if (!(trigger instanceof ITriggerRecheck)) {
+				recheckEveryTick = true;
+				continue;
+			}
+
+			ITriggerRecheck recheck = (ITriggerRecheck) trigger;
+
+			switch (recheck.getRecheckPolicy()) {
+				case NEIGHBOR_CHANGE:
+					// Neighbour changes always make the gate resolve again.
+					break;
+				case WIRE_CHANGE:
+					recheckOnWireChange = true;
+					break;
+				case PERIODIC:
+					int interval = Math.max(1, recheck.getRecheckInterval());
+					recheckInterval = recheckInterval > 0 ? Math.min(recheckInterval, interval) : interval;
+					break;
+				default:
+					recheckEveryTick = true;
+					break;
+			}
+		}
+
+		markForResolution();
+	}
+
 	public void broadcastSignal(PipeWire color) {
 		broadcastSignal.set(color.ordinal());
 	}
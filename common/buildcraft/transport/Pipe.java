@@ -10,6 +10,7 @@ package buildcraft.transport;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
@@ -42,17 +43,30 @@ import buildcraft.transport.gates.GateFactory;
 import buildcraft.transport.statements.ActionValve.ValveState;
 
 public abstract class Pipe<T extends PipeTransport> implements IDropControlInventory, IPipe {
-	public int[] signalStrength = new int[]{0, 0, 0, 0};
+	private static final HashSet<Class<?>> sleepingPipes = new HashSet<Class<?>>();
+
 	public TileGenericPipe container;
 	public final T transport;
 	public final Item item;
 	public boolean[] wireSet = new boolean[]{false, false, false, false};
+	/**
+	 * Strength of the signal on each wire, kept for addons reading it. Wires
+	 * of networks of up to 255 pipes are at 255 when on.
+	 *
+	 * @deprecated use {@link #isWireActive(PipeWire)}
+	 */
+	@Deprecated
+	public int[] signalStrength = new int[]{0, 0, 0, 0};
 	public final Gate[] gates = new Gate[ForgeDirection.VALID_DIRECTIONS.length];
 	public PipeEventBus eventBus = new PipeEventBus();
 
 	private boolean internalUpdateScheduled = false;
 	private boolean initialized = false;
 
+	private WireNetwork[] wireNetworks = new WireNetwork[PipeWire.VALUES.length];
+	private int[] wireNodes = new int[PipeWire.VALUES.length];
+	private boolean[] wireActive = new boolean[PipeWire.VALUES.length];
+
 	private ArrayList<ActionState> actionStates = new ArrayList<ActionState>();
 
 	public Pipe(T transport, Item item) {
@@ -93,10 +107,18 @@ public abstract class Pipe<T extends PipeTransport> implements IDropControlInven
 	public void onBlockPlacedBy(EntityLivingBase placer) {
 	}
 
+	/**
+	 * Called after neighbor changes. The transport has already been told
+	 * about each side which changed.
+	 */
 	public void onNeighborBlockChange(int blockId) {
-		for (ForgeDirection d : ForgeDirection.VALID_DIRECTIONS) {
-			transport.onNeighborChange(d);
+		for (Gate gate : gates) {
+			if (gate != null) {
+				gate.onNeighborChange();
+			}
 		}
+
+		updateSignalState();
 	}
 
 	public boolean canPipeConnect(TileEntity tile, ForgeDirection side) {
@@ -156,12 +178,58 @@ public abstract class Pipe<T extends PipeTransport> implements IDropControlInven
 
 		// Update the gate if we have any
 		if (!container.getWorldObj().isRemote) {
+			buildWireNetworks();
+
+			boolean resolve = needsGateResolution();
+
 			for (Gate gate : gates) {
 				if (gate != null) {
-					gate.resolveActions();
+					if (resolve) {
+						gate.resolveActions();
+					}
+
 					gate.tick();
 				}
 			}
+
+			if (BuildCraftTransport.gateScheduling) {
+				scheduleGateRecheck();
+			}
+		}
+	}
+
+	/**
+	 * Gates scheduling their updates are only resolved when one of their
+	 * triggers may have changed. Pipes read the actions of their gates one
+	 * gate after the other, so all of them are resolved together.
+	 */
+	private boolean needsGateResolution() {
+		if (!BuildCraftTransport.gateScheduling) {
+			return true;
+		}
+
+		long time = container.getWorldObj().getTotalWorldTime();
+
+		for (Gate gate : gates) {
+			if (gate != null && gate.needsResolution(time)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private void scheduleGateRecheck() {
+		long time = container.getWorldObj().getTotalWorldTime();
+
+		for (Gate gate : gates) {
+			if (gate != null) {
+				long next = gate.getNextRecheck();
+
+				if (next != Long.MAX_VALUE) {
+					container.scheduleWakeUp((int) Math.max(1, next - time));
+				}
+			}
 		}
 	}
 
@@ -169,6 +237,47 @@ public abstract class Pipe<T extends PipeTransport> implements IDropControlInven
 		updateSignalState();
 	}
 
+	private void scheduleInternalUpdate() {
+		internalUpdateScheduled = true;
+		container.wakeUp();
+	}
+
+	/**
+	 * Lets the pipes of exactly the given class stop ticking while idle.
+	 * Only meant for classes whose isIdle() covers all the work they do in
+	 * updateEntity(), other pipes are updated on every tick.
+	 */
+	public static void allowSleep(Class<? extends Pipe> pipeClass) {
+		sleepingPipes.add(pipeClass);
+	}
+
+	/**
+	 * Returns true when neither the pipe nor its transport have anything left
+	 * to do, in which case the pipe may stop ticking until it's woken up by
+	 * {@link TileGenericPipe#wakeUp()}. Always false for classes not allowed
+	 * to sleep with {@link #allowSleep}. Pipes doing work of their own on
+	 * every update have to override this.
+	 */
+	public boolean isIdle() {
+		if (internalUpdateScheduled || !sleepingPipes.contains(getClass())) {
+			return false;
+		}
+
+		for (int i = 0; i < wireSet.length; i++) {
+			if (wireSet[i] && wireNetworks[i] == null) {
+				return false;
+			}
+		}
+
+		for (Gate gate : gates) {
+			if (gate != null && !gate.isIdle()) {
+				return false;
+			}
+		}
+
+		return transport.isIdle();
+	}
+
 	public void writeToNBT(NBTTagCompound data) {
 		transport.writeToNBT(data);
 		
@@ -220,107 +329,92 @@ public abstract class Pipe<T extends PipeTransport> implements IDropControlInven
 		initialized = true;
 	}
 
-	private void readNearbyPipesSignal(PipeWire color) {
-		boolean foundBiggerSignal = false;
-
-		for (ForgeDirection o : ForgeDirection.VALID_DIRECTIONS) {
-			TileEntity tile = container.getTile(o);
-
-			if (tile instanceof IPipeTile) {
-				IPipeTile tilePipe = (IPipeTile) tile;
-				Pipe<?> pipe = (Pipe<?>) tilePipe.getPipe();
-
-				if (BlockGenericPipe.isFullyDefined(pipe)) {
-					if (isWireConnectedTo(tile, color, o)) {
-						foundBiggerSignal |= receiveSignal(pipe.signalStrength[color.ordinal()] - 1, color);
-					}
-				}
-			}
+	/**
+	 * Checks the wires of the pipe after something changed around it. Wire
+	 * networks the pipe isn't connected the same way to anymore are broken
+	 * up, and rebuilt on the next update.
+	 */
+	public void updateSignalState() {
+		if (container.getWorldObj() == null || container.getWorldObj().isRemote) {
+			return;
 		}
 
-		if (!foundBiggerSignal && signalStrength[color.ordinal()] != 0) {
-			signalStrength[color.ordinal()] = 0;
-			// worldObj.markBlockNeedsUpdate(container.xCoord, container.yCoord, zCoord);
-			container.scheduleRenderUpdate();
-
-			for (ForgeDirection o : ForgeDirection.VALID_DIRECTIONS) {
-				TileEntity tile = container.getTile(o);
+		for (PipeWire wire : PipeWire.VALUES) {
+			int color = wire.ordinal();
+			WireNetwork network = wireNetworks[color];
 
-				if (tile instanceof IPipeTile) {
-					IPipeTile tilePipe = (IPipeTile) tile;
-					Pipe<?> pipe = (Pipe<?>) tilePipe.getPipe();
+			if (network != null && (!wireSet[color] || !network.hasSameConnections(wireNodes[color]))) {
+				network.invalidate();
+				network = null;
+			}
 
-					if (BlockGenericPipe.isFullyDefined(pipe)) {
-						pipe.internalUpdateScheduled = true;
-					}
-				}
+			if (!wireSet[color]) {
+				setWireActive(color, false);
+			} else if (network != null) {
+				network.updateEmitter(wireNodes[color]);
+			} else {
+				container.wakeUp();
 			}
 		}
 	}
 
-	public void updateSignalState() {
-		for (PipeWire c : PipeWire.values()) {
-			updateSignalStateForColor(c);
+	/**
+	 * Called when the gates of the pipe started or stopped broadcasting on a
+	 * wire.
+	 */
+	void updateWireEmitters() {
+		for (int color = 0; color < wireNetworks.length; color++) {
+			if (wireNetworks[color] != null) {
+				wireNetworks[color].updateEmitter(wireNodes[color]);
+			}
 		}
 	}
 
-	private void updateSignalStateForColor(PipeWire wire) {
-		if (!wireSet[wire.ordinal()]) {
-			return;
-		}
-
-		// STEP 1: compute internal signal strength
-
-		boolean readNearbySignal = true;
-		for (Gate gate : gates) {
-			if (gate != null && gate.broadcastSignal.get(wire.ordinal())) {
-				receiveSignal(255, wire);
-				readNearbySignal = false;
+	private void buildWireNetworks() {
+		for (PipeWire wire : PipeWire.VALUES) {
+			if (wireSet[wire.ordinal()] && wireNetworks[wire.ordinal()] == null) {
+				WireNetwork.build(this, wire);
 			}
 		}
+	}
 
-		if (readNearbySignal) {
-			readNearbyPipesSignal(wire);
+	private void invalidateWireNetworks() {
+		for (WireNetwork network : wireNetworks) {
+			if (network != null) {
+				network.invalidate();
+			}
 		}
+	}
 
-		// STEP 2: transmit signal in nearby blocks
-
-		if (signalStrength[wire.ordinal()] > 1) {
-			for (ForgeDirection o : ForgeDirection.VALID_DIRECTIONS) {
-				TileEntity tile = container.getTile(o);
-
-				if (tile instanceof IPipeTile) {
-					IPipeTile tilePipe = (IPipeTile) tile;
-					Pipe<?> pipe = (Pipe<?>) tilePipe.getPipe();
+	WireNetwork getWireNetwork(int color) {
+		return wireNetworks[color];
+	}
 
-					if (BlockGenericPipe.isFullyDefined(pipe) && pipe.wireSet[wire.ordinal()]) {
-						if (isWireConnectedTo(tile, wire, o)) {
-							pipe.receiveSignal(signalStrength[wire.ordinal()] - 1, wire);
-						}
-					}
-				}
-			}
-		}
+	void setWireNetwork(int color, WireNetwork network, int node) {
+		wireNetworks[color] = network;
+		wireNodes[color] = node;
 	}
 
-	private boolean receiveSignal(int signal, PipeWire color) {
-		if (container.getWorldObj() == null) {
-			return false;
+	/**
+	 * Called by {@link WireNetwork} with the state of a wire of the pipe.
+	 * Only actual changes are redrawn and reach the gates.
+	 */
+	void setWireActive(int color, boolean active) {
+		if (!active) {
+			signalStrength[color] = 0;
 		}
 
-		int oldSignal = signalStrength[color.ordinal()];
+		if (wireActive[color] == active) {
+			return;
+		}
 
-		if (signal >= signalStrength[color.ordinal()] && signal != 0) {
-			signalStrength[color.ordinal()] = signal;
-			internalUpdateScheduled = true;
+		wireActive[color] = active;
+		container.scheduleRenderUpdate();
 
-			if (oldSignal == 0) {
-				container.scheduleRenderUpdate();
+		for (Gate gate : gates) {
+			if (gate != null) {
+				gate.onWireSignalChange();
 			}
-
-			return true;
-		} else {
-			return false;
 		}
 	}
 
@@ -395,7 +489,7 @@ public abstract class Pipe<T extends PipeTransport> implements IDropControlInven
 
 	@Override
 	public boolean isWireActive(PipeWire color) {
-		return signalStrength[color.ordinal()] > 0;
+		return wireActive[color.ordinal()];
 	}
 
 	@Deprecated
@@ -468,7 +562,7 @@ public abstract class Pipe<T extends PipeTransport> implements IDropControlInven
 			gates[i] = null;
 		}
 
-		internalUpdateScheduled = true;
+		scheduleInternalUpdate();
 		container.scheduleRenderUpdate();
 	}
 
@@ -546,6 +640,8 @@ public abstract class Pipe<T extends PipeTransport> implements IDropControlInven
 	 * Called when TileGenericPipe.invalidate() is called
 	 */
 	public void invalidate() {
+		transport.invalidate();
+		invalidateWireNetworks();
 	}
 
 	/**
@@ -558,6 +654,8 @@ public abstract class Pipe<T extends PipeTransport> implements IDropControlInven
 	 * Called when TileGenericPipe.onChunkUnload is called
 	 */
 	public void onChunkUnload() {
+		transport.onChunkUnload();
+		invalidateWireNetworks();
 	}
 
 	public World getWorld() {
@@ -1,58 +1,114 @@
 package buildcraft.transport;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.logging.log4j.Level;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import buildcraft.api.core.BCLog;
 import buildcraft.transport.pipes.events.PipeEvent;
 import buildcraft.transport.pipes.events.PipeEventPriority;
 
 public class PipeEventBus {
-	private class EventHandler {
-		public Method method;
-		public Object owner;
+	/**
+	 * Calls one eventHandler method on a handler object. Implementations are
+	 * generated once per handler method, so dispatching an event is a plain
+	 * interface call instead of a reflective one.
+	 */
+	public interface Invoker {
+		void invoke(Object owner, PipeEvent event);
+	}
 
-		public EventHandler(Method m, Object o) {
-			this.method = m;
-			this.owner = o;
+	private static final class HandlerMethod {
+		public final Class<? extends PipeEvent> eventType;
+		public final int priority;
+		public final Invoker invoker;
+
+		public HandlerMethod(Class<? extends PipeEvent> eventType, int priority, Invoker invoker) {
+			this.eventType = eventType;
+			this.priority = priority;
+			this.invoker = invoker;
 		}
+	}
 
-		@Override
-		public boolean equals(Object o) {
-			if (o == null || !(o instanceof EventHandler)) {
-				return false;
-			}
+	private static final class EventHandler {
+		public final HandlerMethod method;
+		public final Object owner;
+		/** Set once the handler threw, so it is only reported the first time. */
+		public boolean failed;
 
-			EventHandler e = (EventHandler) o;
-			return e.method.equals(method) && e.owner == owner;
+		public EventHandler(HandlerMethod method, Object owner) {
+			this.method = method;
+			this.owner = owner;
 		}
 	}
 
 	private static class EventHandlerCompare implements Comparator<EventHandler> {
-		private int getPriority(EventHandler eh) {
-			PipeEventPriority p = eh.method.getAnnotation(PipeEventPriority.class);
-			return p != null ? p.priority() : 0;
+		@Override
+		public int compare(EventHandler o1, EventHandler o2) {
+			return o2.method.priority - o1.method.priority;
+		}
+	}
+
+	private static final class ReflectiveInvoker implements Invoker {
+		private final Method method;
+
+		public ReflectiveInvoker(Method method) {
+			this.method = method;
+			method.setAccessible(true);
 		}
 
 		@Override
-		public int compare(EventHandler o1, EventHandler o2) {
-			int priority1 = getPriority(o1);
-			int priority2 = getPriority(o2);
-			return priority2 - priority1;
+		public void invoke(Object owner, PipeEvent event) {
+			try {
+				method.invoke(owner, event);
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException(e);
+			} catch (InvocationTargetException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new RuntimeException(cause);
+			}
+		}
+	}
+
+	private static final class InvokerClassLoader extends ClassLoader {
+		private InvokerClassLoader() {
+			super(InvokerClassLoader.class.getClassLoader());
+		}
+
+		public Class<?> define(String name, byte[] data) {
+			return defineClass(name, data, 0, data.length);
 		}
 	}
 
 	private static final EventHandlerCompare COMPARATOR = new EventHandlerCompare();
+	private static final EventHandler[] NO_HANDLERS = new EventHandler[0];
 	private static final HashSet<Object> globalHandlers = new HashSet<Object>();
+	private static final Map<Class<?>, HandlerMethod[]> classHandlerMethods = new HashMap<Class<?>, HandlerMethod[]>();
+	private static final InvokerClassLoader invokerLoader = new InvokerClassLoader();
+	private static int invokerCount = 0;
 
 	private final HashSet<Object> registeredHandlers = new HashSet<Object>();
-	private final HashMap<Object, Map<Method, Class<? extends PipeEvent>>> handlerMethods = new HashMap<Object, Map<Method, Class<? extends PipeEvent>>>();
 	private final HashMap<Class<? extends PipeEvent>, List<EventHandler>> eventHandlers = new HashMap<Class<? extends PipeEvent>, List<EventHandler>>();
+	private final HashMap<Class<? extends PipeEvent>, EventHandler[]> eventHandlerArrays = new HashMap<Class<? extends PipeEvent>, EventHandler[]>();
 
 	public PipeEventBus() {
 		for (Object o : globalHandlers) {
@@ -64,6 +120,89 @@ public class PipeEventBus {
 		globalHandlers.add(globalHandler);
 	}
 
+	/**
+	 * Returns the eventHandler methods declared by the given class, binding
+	 * an invoker for each of them the first time the class is seen.
+	 */
+	private static synchronized HandlerMethod[] getHandlerMethods(Class<?> handlerClass) {
+		HandlerMethod[] methods = classHandlerMethods.get(handlerClass);
+
+		if (methods == null) {
+			List<HandlerMethod> methodList = new ArrayList<HandlerMethod>();
+
+			for (Method m : handlerClass.getDeclaredMethods()) {
+				if ("eventHandler".equals(m.getName())) {
+					Class[] parameters = m.getParameterTypes();
+					if (parameters.length == 1 && PipeEvent.class.isAssignableFrom(parameters[0])) {
+						PipeEventPriority p = m.getAnnotation(PipeEventPriority.class);
+						methodList.add(new HandlerMethod((Class<? extends PipeEvent>) parameters[0], p != null ? p.priority() : 0, createInvoker(m)));
+					}
+				}
+			}
+
+			methods = methodList.toArray(new HandlerMethod[methodList.size()]);
+			classHandlerMethods.put(handlerClass, methods);
+		}
+
+		return methods;
+	}
+
+	private static Invoker createInvoker(Method method) {
+		Class<?> handlerClass = method.getDeclaringClass();
+		Class<?> eventClass = method.getParameterTypes()[0];
+
+		if (!Modifier.isPublic(handlerClass.getModifiers()) || !Modifier.isPublic(eventClass.getModifiers())
+				|| !Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers())) {
+			// Generated invokers can only reach public instance methods.
+			return new ReflectiveInvoker(method);
+		}
+
+		String name = "buildcraft.transport.PipeEventInvoker" + (invokerCount++) + "_"
+				+ handlerClass.getSimpleName() + "_" + eventClass.getSimpleName();
+		String handlerType = Type.getInternalName(handlerClass);
+
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(Opcodes.V1_6, Opcodes.ACC_PUBLIC | Opcodes.ACC_SUPER, name.replace('.', '/'), null,
+				"java/lang/Object", new String[] {Type.getInternalName(Invoker.class)});
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "invoke",
+				Type.getMethodDescriptor(Type.VOID_TYPE, Type.getType(Object.class), Type.getType(PipeEvent.class)), null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, handlerType);
+		mv.visitVarInsn(Opcodes.ALOAD, 2);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(eventClass));
+		mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, handlerType, method.getName(), Type.getMethodDescriptor(method), false);
+
+		Type returnType = Type.getReturnType(method);
+		if (returnType.getSize() == 1) {
+			mv.visitInsn(Opcodes.POP);
+		} else if (returnType.getSize() == 2) {
+			mv.visitInsn(Opcodes.POP2);
+		}
+
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+		cw.visitEnd();
+
+		try {
+			return (Invoker) invokerLoader.define(name, cw.toByteArray()).newInstance();
+		} catch (InstantiationException e) {
+			throw new RuntimeException(e);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
 	private List<EventHandler> getHandlerList(Class<? extends PipeEvent> event) {
 		if (!eventHandlers.containsKey(event)) {
 			eventHandlers.put(event, new ArrayList<EventHandler>());
@@ -77,26 +216,22 @@ public class PipeEventBus {
 		}
 
 		registeredHandlers.add(handler);
-		Map<Method, Class<? extends PipeEvent>> methods = new HashMap<Method, Class<? extends PipeEvent>>();
-
-		for (Method m: handler.getClass().getDeclaredMethods()) {
-			if ("eventHandler".equals(m.getName())) {
-				Class[] parameters = m.getParameterTypes();
-				if (parameters.length == 1 && PipeEvent.class.isAssignableFrom(parameters[0])) {
-					Class<? extends PipeEvent> eventType = (Class<? extends PipeEvent>) parameters[0];
-					List<EventHandler> eventHandlerList = getHandlerList(eventType);
-					eventHandlerList.add(new EventHandler(m, handler));
-					updateEventHandlers(eventHandlerList);
-					methods.put(m, eventType);
-				}
-			}
-		}
 
-		handlerMethods.put(handler, methods);
+		for (HandlerMethod m : getHandlerMethods(handler.getClass())) {
+			List<EventHandler> eventHandlerList = getHandlerList(m.eventType);
+			eventHandlerList.add(new EventHandler(m, handler));
+			updateEventHandlers(m.eventType, eventHandlerList);
+		}
 	}
 
-	private void updateEventHandlers(List<EventHandler> eventHandlerList) {
+	private void updateEventHandlers(Class<? extends PipeEvent> eventType, List<EventHandler> eventHandlerList) {
 		Collections.sort(eventHandlerList, COMPARATOR);
+
+		if (eventHandlerList.isEmpty()) {
+			eventHandlerArrays.remove(eventType);
+		} else {
+			eventHandlerArrays.put(eventType, eventHandlerList.toArray(new EventHandler[eventHandlerList.size()]));
+		}
 	}
 
 	public void unregisterHandler(Object handler) {
@@ -105,19 +240,47 @@ public class PipeEventBus {
 		}
 
 		registeredHandlers.remove(handler);
-		Map<Method, Class<? extends PipeEvent>> methodMap = handlerMethods.get(handler);
-		for (Method m : methodMap.keySet()) {
-			getHandlerList(methodMap.get(m)).remove(new EventHandler(m, handler));
+
+		for (HandlerMethod m : getHandlerMethods(handler.getClass())) {
+			List<EventHandler> eventHandlerList = getHandlerList(m.eventType);
+			for (Iterator<EventHandler> it = eventHandlerList.iterator(); it.hasNext();) {
+				EventHandler eventHandler = it.next();
+				if (eventHandler.method == m && eventHandler.owner == handler) {
+					it.remove();
+				}
+			}
+			updateEventHandlers(m.eventType, eventHandlerList);
 		}
-		handlerMethods.remove(handler);
+	}
+
+	/**
+	 * Returns the handlers currently registered for an event type, in
+	 * priority order. Event types without handlers share an empty array.
+	 */
+	private EventHandler[] getHandlers(Class<? extends PipeEvent> eventClass) {
+		EventHandler[] handlers = eventHandlerArrays.get(eventClass);
+		return handlers != null ? handlers : NO_HANDLERS;
+	}
+
+	/**
+	 * Returns true if at least one handler listens to the given event type,
+	 * so callers can skip building events nobody will receive.
+	 */
+	public boolean hasHandlers(Class<? extends PipeEvent> eventClass) {
+		return eventHandlerArrays.containsKey(eventClass);
 	}
 
 	public void handleEvent(Class<? extends PipeEvent> eventClass, PipeEvent event) {
-		for (EventHandler eventHandler : getHandlerList(eventClass)) {
+		for (EventHandler eventHandler : getHandlers(eventClass)) {
 			try {
-				eventHandler.method.invoke(eventHandler.owner, event);
+				eventHandler.method.invoker.invoke(eventHandler.owner, event);
 			} catch (Exception e) {
-
+				// A faulty handler must not take the pipe tick down with it.
+				if (!eventHandler.failed) {
+					eventHandler.failed = true;
+					BCLog.logger.log(Level.WARN, "Pipe event handler " + eventHandler.owner.getClass().getName() + " failed on "
+							+ eventClass.getSimpleName() + ", further failures of this handler are not reported", e);
+				}
 			}
 		}
 	}
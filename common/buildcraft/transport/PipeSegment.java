@@ -0,0 +1,369 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.transport;
+
+import java.util.ArrayList;
+import java.util.PriorityQueue;
+
+import net.minecraft.entity.item.EntityItem;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+import net.minecraftforge.common.util.ForgeDirection;
+
+import buildcraft.core.DefaultProps;
+import buildcraft.transport.pipes.PipeItemsCobblestone;
+import buildcraft.transport.pipes.PipeItemsStone;
+import buildcraft.transport.pipes.events.PipeEventItem;
+
+/**
+ * A straight run of plain stone or cobblestone pipes, handled as a single
+ * delay line. An item entering the run is held here until the tick it would
+ * have left the last pipe of the run, and is then handed to the exit pipe
+ * following the run.
+ *
+ * While a player is close enough to see the run, or once any pipe of the run
+ * changes, the items held are put back in the pipes where full simulation
+ * would have moved them.
+ */
+public class PipeSegment {
+	public static final int MIN_LENGTH = 4;
+	public static final int MAX_LENGTH = 256;
+
+	/**
+	 * Moves an item may take to cross one pipe of the run before the run is
+	 * considered unfit for a delay line.
+	 */
+	private static final int MAX_PIPE_MOVES = 1024;
+
+	private static final class Transit implements Comparable<Transit> {
+		public final TravelingItem item;
+		public final long entryTick;
+		public final long arrivalTick;
+		public final double x, y, z;
+		public final float speed;
+
+		public Transit(TravelingItem item, long entryTick, long arrivalTick, double x, double y, double z, float speed) {
+			this.item = item;
+			this.entryTick = entryTick;
+			this.arrivalTick = arrivalTick;
+			this.x = x;
+			this.y = y;
+			this.z = z;
+			this.speed = speed;
+		}
+
+		@Override
+		public int compareTo(Transit other) {
+			return arrivalTick < other.arrivalTick ? -1 : (arrivalTick == other.arrivalTick ? 0 : 1);
+		}
+	}
+
+	private final TileGenericPipe[] pipes;
+	/**
+	 * Transports of the pipes, kept so items can still be moved through a
+	 * pipe which has been removed since.
+	 */
+	private final PipeTransportItems[] transports;
+	private final TileGenericPipe exit;
+	private final ForgeDirection direction;
+	private final PriorityQueue<Transit> transits = new PriorityQueue<Transit>();
+	private boolean valid = true;
+	private boolean observed = false;
+	private long nextObserverCheck = 0;
+
+	private PipeSegment(TileGenericPipe[] pipes, TileGenericPipe exit, ForgeDirection direction) {
+		this.pipes = pipes;
+		this.exit = exit;
+		this.direction = direction;
+		this.transports = new PipeTransportItems[pipes.length];
+
+		for (int i = 0; i < pipes.length; i++) {
+			transports[i] = getTransport(pipes[i]);
+			transports[i].segments.add(this);
+		}
+		getTransport(exit).segments.add(this);
+	}
+
+	/**
+	 * Finds the run of plain pipes starting at the given pipe and going in
+	 * the given direction.
+	 *
+	 * @return the segment, or null if the run is too short
+	 */
+	public static PipeSegment build(TileGenericPipe first, ForgeDirection direction) {
+		ArrayList<TileGenericPipe> run = new ArrayList<TileGenericPipe>();
+		TileGenericPipe tile = first;
+
+		while (tile != null && run.size() < MAX_LENGTH && isPlain(tile, direction)) {
+			run.add(tile);
+			tile = getNextPipe(tile, direction);
+		}
+
+		if (tile == null || !acceptsItems(tile, direction)) {
+			// The run ends on something else than a pipe, its last pipe
+			// has to route items and becomes the exit.
+			if (run.isEmpty()) {
+				return null;
+			}
+			tile = run.remove(run.size() - 1);
+		}
+
+		if (run.size() < MIN_LENGTH) {
+			return null;
+		}
+
+		return new PipeSegment(run.toArray(new TileGenericPipe[run.size()]), tile, direction);
+	}
+
+	/**
+	 * Returns true if the pipe only passes items straight through, so that
+	 * nothing but the item's speed changes on its way.
+	 */
+	private static boolean isPlain(TileGenericPipe tile, ForgeDirection direction) {
+		if (!isAlive(tile)) {
+			return false;
+		}
+
+		if (tile.pipe.getClass() != PipeItemsStone.class && tile.pipe.getClass() != PipeItemsCobblestone.class) {
+			return false;
+		}
+
+		PipeEventBus eventBus = tile.pipe.eventBus;
+
+		if (eventBus.hasHandlers(PipeEventItem.Entered.class) || eventBus.hasHandlers(PipeEventItem.ReachedCenter.class)
+				|| eventBus.hasHandlers(PipeEventItem.ReachedEnd.class)) {
+			return false;
+		}
+
+		for (ForgeDirection side : ForgeDirection.VALID_DIRECTIONS) {
+			boolean straight = side == direction || side == direction.getOpposite();
+
+			if (tile.hasPipePluggable(side) || tile.isPipeConnected(side) != straight) {
+				return false;
+			}
+		}
+
+		return tile.pipe.inputOpen(direction.getOpposite()) && tile.pipe.outputOpen(direction);
+	}
+
+	private static boolean acceptsItems(TileGenericPipe tile, ForgeDirection direction) {
+		return isAlive(tile) && tile.pipe.transport instanceof PipeTransportItems
+				&& !tile.hasPipePluggable(direction.getOpposite())
+				&& tile.pipe.inputOpen(direction.getOpposite());
+	}
+
+	private static TileGenericPipe getNextPipe(TileGenericPipe tile, ForgeDirection direction) {
+		World world = tile.getWorldObj();
+		int x = tile.xCoord + direction.offsetX;
+		int y = tile.yCoord + direction.offsetY;
+		int z = tile.zCoord + direction.offsetZ;
+
+		if (!world.blockExists(x, y, z)) {
+			return null;
+		}
+
+		TileEntity next = world.getTileEntity(x, y, z);
+		return next instanceof TileGenericPipe ? (TileGenericPipe) next : null;
+	}
+
+	private static PipeTransportItems getTransport(TileGenericPipe tile) {
+		return (PipeTransportItems) tile.pipe.transport;
+	}
+
+	public boolean isValid() {
+		return valid;
+	}
+
+	/**
+	 * Takes in an item that has just left the pipe before the run.
+	 *
+	 * @return false if the item has to go through the run the usual way
+	 */
+	public boolean enter(TravelingItem item) {
+		long now = exit.getWorldObj().getTotalWorldTime();
+		updateObserved(now);
+
+		if (!valid || observed) {
+			return false;
+		}
+
+		double x = item.xCoord;
+		double y = item.yCoord;
+		double z = item.zCoord;
+		float speed = item.getSpeed();
+		long moves = 0;
+
+		for (TileGenericPipe pipe : pipes) {
+			int pipeMoves = getTransport(pipe).traverse(item, direction, MAX_PIPE_MOVES);
+
+			if (pipeMoves < 0) {
+				item.setPosition(x, y, z);
+				item.setSpeed(speed);
+				return false;
+			}
+
+			moves += pipeMoves;
+		}
+
+		// Pipes pick up items handed to them on their next update, one move
+		// per tick.
+		transits.add(new Transit(item, now, now + moves, x, y, z, speed));
+		exit.wakeUp();
+		return true;
+	}
+
+	/**
+	 * Hands the items which reached the end of the run to the exit pipe.
+	 * Called by every pipe of the segment at the end of its update, only the
+	 * exit's call does anything.
+	 */
+	void update(TileGenericPipe tile) {
+		if (!valid || tile != exit) {
+			return;
+		}
+
+		if (!isAlive(exit)) {
+			invalidate();
+			return;
+		}
+
+		long now = exit.getWorldObj().getTotalWorldTime();
+		updateObserved(now);
+
+		if (observed) {
+			restoreItems(now);
+			return;
+		}
+
+		PipeTransportItems exitTransport = getTransport(exit);
+
+		while (!transits.isEmpty() && transits.peek().arrivalTick <= now) {
+			exitTransport.injectItem(transits.poll().item, direction);
+		}
+	}
+
+	/**
+	 * Returns true if the given pipe has nothing to do for this segment. Only
+	 * the exit has, while items are held.
+	 */
+	boolean isIdle(TileGenericPipe tile) {
+		return !valid || tile != exit || transits.isEmpty();
+	}
+
+	/**
+	 * Called when a block next to one of the pipes of the segment changes.
+	 * Changes around the exit don't matter, the exit routes items itself.
+	 */
+	void onNeighborChange(TileGenericPipe tile) {
+		if (tile != exit) {
+			invalidate();
+		}
+	}
+
+	/**
+	 * Stops using this segment, putting the items held back in the pipes.
+	 */
+	public void invalidate() {
+		if (!valid) {
+			return;
+		}
+
+		valid = false;
+		restoreItems(exit.getWorldObj().getTotalWorldTime());
+
+		for (TileGenericPipe pipe : pipes) {
+			if (BlockGenericPipe.isValid(pipe.pipe)) {
+				getTransport(pipe).segments.remove(this);
+			}
+		}
+		if (BlockGenericPipe.isValid(exit.pipe)) {
+			getTransport(exit).segments.remove(this);
+		}
+	}
+
+	/**
+	 * Replays the moves of every item held up to the given tick, and puts it
+	 * in the pipe it has reached. Items which reached a pipe removed since
+	 * are dropped where they are, the others go on as if nothing happened.
+	 */
+	private void restoreItems(long now) {
+		long maxMoves = (long) (pipes.length + 1) * MAX_PIPE_MOVES;
+
+		while (!transits.isEmpty()) {
+			Transit transit = transits.poll();
+			TravelingItem item = transit.item;
+			// This tick's move is still to be made by the pipe.
+			int budget = (int) Math.min(Math.max(now - transit.entryTick - 1, 0), maxMoves);
+			TileGenericPipe target = exit;
+
+			item.setPosition(transit.x, transit.y, transit.z);
+			item.setSpeed(transit.speed);
+
+			for (int i = 0; i < pipes.length; i++) {
+				int moves = transports[i].traverse(item, direction, budget);
+
+				if (moves < 0) {
+					target = pipes[i];
+					break;
+				}
+
+				budget -= moves;
+			}
+
+			if (!isAlive(target)) {
+				// The item is in a pipe which is gone, drop it there.
+				item.setContainer(target);
+				EntityItem entity = item.toEntityItem();
+
+				if (entity != null) {
+					entity.worldObj.spawnEntityInWorld(entity);
+				}
+			} else if (target == exit) {
+				getTransport(exit).injectItem(item, direction);
+			} else {
+				getTransport(target).receiveSegmentItem(item);
+			}
+		}
+	}
+
+	private static boolean isAlive(TileGenericPipe tile) {
+		return !tile.isInvalid() && BlockGenericPipe.isValid(tile.pipe);
+	}
+
+	private void updateObserved(long now) {
+		if (now < nextObserverCheck) {
+			return;
+		}
+
+		nextObserverCheck = now + PipeTransportItems.OBSERVER_CHECK_TICKS;
+
+		TileGenericPipe first = pipes[0];
+		TileGenericPipe last = pipes[pipes.length - 1];
+		int range = DefaultProps.PIPE_CONTENTS_RENDER_DIST;
+		double minX = Math.min(first.xCoord, last.xCoord) - range;
+		double minY = Math.min(first.yCoord, last.yCoord) - range;
+		double minZ = Math.min(first.zCoord, last.zCoord) - range;
+		double maxX = Math.max(first.xCoord, last.xCoord) + 1 + range;
+		double maxY = Math.max(first.yCoord, last.yCoord) + 1 + range;
+		double maxZ = Math.max(first.zCoord, last.zCoord) + 1 + range;
+
+		observed = false;
+
+		for (Object o : exit.getWorldObj().playerEntities) {
+			EntityPlayer player = (EntityPlayer) o;
+
+			if (player.posX >= minX && player.posX <= maxX && player.posY >= minY && player.posY <= maxY
+					&& player.posZ >= minZ && player.posZ <= maxZ) {
+				observed = true;
+				break;
+			}
+		}
+	}
+}
@@ -78,6 +78,15 @@ public abstract class PipeTransport {
 	public void updateEntity() {
 	}
 
+	/**
+	 * Returns true when the transport has nothing left to do, in which case
+	 * its pipe may stop ticking. Whatever gives the transport work again has
+	 * to wake the pipe up, see {@link TileGenericPipe#wakeUp()}.
+	 */
+	public boolean isIdle() {
+		return false;
+	}
+
 	public void setTile(TileGenericPipe tile) {
 	    this.container = tile;
 	}
@@ -86,9 +95,20 @@ public abstract class PipeTransport {
 	    return true;
 	}
 
+	/**
+	 * Called when something changed next to the pipe on the given side,
+	 * including a neighbor merely marking itself dirty.
+	 */
 	public void onNeighborChange(ForgeDirection direction) {
 	}
 
+	/**
+	 * Called after {@link #onNeighborChange} when the change on the given
+	 * side was a block update, or the pipe connected or disconnected there.
+	 */
+	public void onNeighborBlockChange(ForgeDirection direction) {
+	}
+
 	public void onBlockPlaced() {
 	}
 
@@ -104,19 +124,39 @@ public abstract class PipeTransport {
 	}
 
 	public void allowInput(ForgeDirection from, boolean allow) {
-		if (from != ForgeDirection.UNKNOWN) {
+		if (from != ForgeDirection.UNKNOWN && inputsOpen[from.ordinal()] != allow) {
 			inputsOpen[from.ordinal()] = allow;
+			wakeUp();
 		}
 	}
 
 	public void allowOutput(ForgeDirection to, boolean allow) {
-		if (to != ForgeDirection.UNKNOWN) {
+		if (to != ForgeDirection.UNKNOWN && outputsOpen[to.ordinal()] != allow) {
 			outputsOpen[to.ordinal()] = allow;
+			wakeUp();
+		}
+	}
+
+	private void wakeUp() {
+		if (container != null) {
+			container.wakeUp();
 		}
 	}
 
 	public void dropContents() {
 	}
+
+	/**
+	 * Called when the pipe is invalidated.
+	 */
+	public void invalidate() {
+	}
+
+	/**
+	 * Called when the chunk holding the pipe unloads.
+	 */
+	public void onChunkUnload() {
+	}
 	
 	public List<ItemStack> getDroppedItems() {
 		return new ArrayList<ItemStack>();
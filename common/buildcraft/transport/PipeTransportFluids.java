@@ -1,12 +1,14 @@
 package buildcraft.transport;
 
-import java.util.BitSet;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 
+import io.netty.buffer.ByteBuf;
+
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.tileentity.TileEntity;
 import net.minecraftforge.common.util.ForgeDirection;
@@ -19,11 +21,11 @@ import net.minecraftforge.fluids.IFluidHandler;
 
 import buildcraft.BuildCraftCore;
 import buildcraft.BuildCraftTransport;
-import buildcraft.api.core.SafeTimeTracker;
 import buildcraft.api.transport.IPipeTile;
 import buildcraft.core.DefaultProps;
 import buildcraft.core.lib.utils.MathUtils;
 import buildcraft.transport.network.PacketFluidUpdate;
+import buildcraft.transport.network.PacketPipeBatch;
 import buildcraft.transport.pipes.PipeFluidsCobblestone;
 import buildcraft.transport.pipes.PipeFluidsDiamond;
 import buildcraft.transport.pipes.PipeFluidsEmerald;
@@ -50,7 +52,26 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 	public static short OUTPUT_TTL = 80; // 80
 	public static short OUTPUT_COOLDOWN = 30; // 30
 
-	private static int NETWORK_SYNC_TICKS = BuildCraftCore.updateFactor / 2;
+	/**
+	 * Ticks without any fluid moving after which a pipe holding fluid is
+	 * considered stuck, and may sleep. This is more than the longest travel
+	 * delay, so fluid still in transit always gets to move first.
+	 */
+	public static int STUCK_DELAY = 20;
+	/**
+	 * The longest a stuck pipe sleeps before trying to move its fluid
+	 * again. Sleeps start at {@link #STUCK_DELAY} and double each time
+	 * the pipe is still stuck.
+	 */
+	public static int MAX_STUCK_SLEEP = 100;
+
+	private static int NETWORK_SYNC_TICKS = Math.max(1, BuildCraftCore.updateFactor / 2);
+	/**
+	 * Ticks between two full resends of the render levels. Changes are only
+	 * sent to players close to the pipe, this catches up the others once
+	 * they come closer.
+	 */
+	private static long FULL_SYNC_TICKS = NETWORK_SYNC_TICKS * BuildCraftCore.longUpdateFactor;
 	private static byte CLIENT_INIT_DELAY = (byte) 12;
 	private static final ForgeDirection[] directions = ForgeDirection.VALID_DIRECTIONS;
 	private static final ForgeDirection[] orientations = ForgeDirection.values();
@@ -102,7 +123,7 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 
 		public void reset() {
 			this.amount = 0;
-			incoming = new short[MAX_TRAVEL_DELAY];
+			Arrays.fill(incoming, (short) 0);
 		}
 
 		/**
@@ -144,17 +165,25 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 
 	public FluidRenderData renderCache = new FluidRenderData();
 
-	private final SafeTimeTracker networkSyncTracker = new SafeTimeTracker(NETWORK_SYNC_TICKS);
+	private final byte[] renderLevels = new byte[7];
+
 	private final TransferState[] transferState = new TransferState[directions.length];
 	private final int[] inputPerTick = new int[directions.length];
 	private final short[] inputTTL = new short[]{0, 0, 0, 0, 0, 0};
 	private final short[] outputTTL = new short[]{OUTPUT_TTL, OUTPUT_TTL, OUTPUT_TTL, OUTPUT_TTL, OUTPUT_TTL, OUTPUT_TTL};
 	private final short[] outputCooldown = new short[]{0, 0, 0, 0, 0, 0};
 	private final boolean[] canReceiveCache = new boolean[6];
+	private final int[] destinationWeights = new int[6];
 	private byte initClient = 0;
-	private int clientSyncCounter = 0;
+	private long nextFullSync = 0;
+	private boolean changedSinceFullSync = false;
+	private int stuckTicks = 0;
+	private int stuckSleep = 0;
+	private long lastUpdateTime = 0;
 	private int capacity, flowRate;
 	private int travelDelay = MAX_TRAVEL_DELAY;
+	private FluidNetwork network;
+	private int networkNode;
 
 	public enum TransferState {
 		None, Input, Output
@@ -224,36 +253,248 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 			return;
 		}
 
-		if (fluidType != null) {
+		updateNetwork();
+
+		long now = container.getWorldObj().getTotalWorldTime();
+
+		if (now - lastUpdateTime > 1) {
+			// The pipe was asleep, give it time to settle again.
+			stuckTicks = 0;
+		}
+
+		lastUpdateTime = now;
+
+		if (network != null) {
+			network.update();
+		} else if (fluidType != null) {
 			moveFluids();
 		}
 
-		if (networkSyncTracker.markTimeIfDelay(container.getWorldObj())) {
-			boolean init = false;
-			if (++clientSyncCounter > BuildCraftCore.longUpdateFactor) {
-				clientSyncCounter = 0;
-				init = true;
+		// All the pipes sync on the same ticks, so that the updates of a
+		// chunk go out together.
+		if (container.getWorldObj().getTotalWorldTime() % NETWORK_SYNC_TICKS == 0) {
+			if (network != null) {
+				if (container.getWorldObj().getClosestPlayer(container.xCoord + 0.5, container.yCoord + 0.5,
+						container.zCoord + 0.5, DefaultProps.PIPE_CONTENTS_RENDER_DIST) == null) {
+					// Nobody can see the pipe, its sections can stay stale.
+					return;
+				}
+
+				network.writeBack(networkNode);
+			}
+
+			int delta = computeFluidUpdate(now >= nextFullSync);
+
+			if (delta == 0xFF) {
+				nextFullSync = now + FULL_SYNC_TICKS;
+				changedSinceFullSync = false;
+			} else if (delta != 0) {
+				changedSinceFullSync = true;
+			}
+
+			if (delta != 0) {
+				ByteBuf entry = BuildCraftTransport.pipeSyncBatcher.startEntry(container, PacketPipeBatch.KIND_FLUID, DefaultProps.PIPE_CONTENTS_RENDER_DIST);
+				PacketFluidUpdate.writeEntry(entry, delta, renderCache, renderLevels);
+			}
+		}
+	}
+
+	/**
+	 * Joins or leaves a fluid network, depending on the config and on
+	 * whether the pipe is eligible.
+	 */
+	private void updateNetwork() {
+		if (network != null && !network.isValid()) {
+			network = null;
+		}
+
+		if (!BuildCraftTransport.fluidPipeNetworks) {
+			if (network != null) {
+				network.invalidate();
+			}
+		} else if (network == null && FluidNetwork.isEligible(container.pipe)) {
+			FluidNetwork.build(container);
+		}
+	}
+
+	/**
+	 * Called when the pipe is added to a network. Its fluid is handed over to
+	 * the network, the sections are only written back on request.
+	 *
+	 * @return the amount of fluid the pipe held
+	 */
+	int joinNetwork(FluidNetwork newNetwork, int node) {
+		int amount = 0;
+
+		for (int i = 0; i < sections.length; i++) {
+			amount += sections[i].amount;
+			sections[i].reset();
+		}
+
+		for (ForgeDirection direction : directions) {
+			transferState[direction.ordinal()] = TransferState.None;
+		}
+
+		network = newNetwork;
+		networkNode = node;
+		return amount;
+	}
+
+	/**
+	 * Called when the network the pipe was part of is broken up.
+	 */
+	void leaveNetwork(FluidStack type, int amount) {
+		network = null;
+		loadNetworkFluid(type, amount);
+	}
+
+	/**
+	 * Spreads fluid held for the pipe by its network in the sections, center
+	 * first.
+	 */
+	void loadNetworkFluid(FluidStack type, int amount) {
+		for (PipeSection section : sections) {
+			section.reset();
+		}
+
+		if (type == null || amount <= 0) {
+			setFluidType(null);
+			return;
+		}
+
+		if (fluidType == null || !fluidType.isFluidEqual(type)) {
+			setFluidType(new FluidStack(type, 0));
+		}
+
+		int left = amount;
+		sections[6].amount = Math.min(left, capacity);
+		left -= sections[6].amount;
+
+		int connected = 0;
+
+		for (ForgeDirection direction : directions) {
+			if (container.isPipeConnected(direction)) {
+				connected++;
+			}
+		}
+
+		for (ForgeDirection direction : directions) {
+			if (left > 0 && container.isPipeConnected(direction)) {
+				int share = Math.min(capacity, (left + connected - 1) / connected);
+				sections[direction.ordinal()].amount = share;
+				left -= share;
 			}
-			PacketFluidUpdate packet = computeFluidUpdate(init, true);
 
-			if (packet != null) {
-				BuildCraftTransport.instance.sendToPlayers(packet, container.getWorldObj(), container.xCoord, container.yCoord, container.zCoord, DefaultProps.PIPE_CONTENTS_RENDER_DIST);
+			if (container.isPipeConnected(direction)) {
+				connected--;
 			}
 		}
+
+		// Anything still left over only comes from a lowered capacity.
+		sections[6].amount += left;
+	}
+
+	/**
+	 * Returns true if fluid may be pushed from the pipe to the given side,
+	 * not counting the side's transfer state.
+	 */
+	boolean canOutput(ForgeDirection direction) {
+		return canReceiveCache[direction.ordinal()] && outputOpen(direction) && container.pipe.outputOpen(direction);
+	}
+
+	/**
+	 * Returns the valid network the pipe is part of, if any.
+	 */
+	FluidNetwork getNetwork() {
+		return network != null && network.isValid() ? network : null;
+	}
+
+	private void syncNetwork() {
+		if (network != null && network.isValid()) {
+			network.writeBack(networkNode);
+		}
 	}
 
 	private void moveFluids() {
 		short newTimeSlot = (short) (container.getWorldObj().getTotalWorldTime() % travelDelay);
 		short outputCount = computeCurrentConnectionStatesAndTickFlows(newTimeSlot > 0 && newTimeSlot < travelDelay ? newTimeSlot : 0);
 
-		moveFromPipe(outputCount);
-		moveFromCenter();
-		moveToCenter();
+		boolean moved = moveFromPipe(outputCount);
+		moved |= moveFromCenter();
+		moved |= moveToCenter();
+
+		if (moved) {
+			if (stuckSleep > 0) {
+				// Pipes feeding this one may have gone to sleep while it
+				// was stuck, they can move again now.
+				wakeUpNeighbors();
+				stuckSleep = 0;
+			}
+
+			stuckTicks = 0;
+		} else if (++stuckTicks == STUCK_DELAY) {
+			stuckSleep = stuckSleep == 0 ? STUCK_DELAY : Math.min(MAX_STUCK_SLEEP, stuckSleep * 2);
+		}
+
+		if (stuckTicks >= STUCK_DELAY) {
+			// Outputs may accept fluid again without telling, so a stuck
+			// pipe still has to retry once in a while.
+			container.scheduleWakeUp(stuckSleep);
+		}
+	}
+
+	private void wakeUpNeighbors() {
+		for (ForgeDirection direction : directions) {
+			TileEntity tile = container.getTile(direction);
+
+			if (tile instanceof TileGenericPipe) {
+				((TileGenericPipe) tile).wakeUp();
+			}
+		}
+	}
+
+	/**
+	 * Returns true when the pipe has no fluid to move, or when its fluid has
+	 * been stuck for a while, and clients have been sent the last of it.
+	 * Stuck pipes are only idle until the wake up they schedule, and pipes
+	 * holding or having lost fluid stay awake for their full resends.
+	 */
+	@Override
+	public boolean isIdle() {
+		if (network != null || initClient > 0) {
+			return false;
+		}
+
+		if ((fluidType != null || changedSinceFullSync) && container.getWorldObj().getTotalWorldTime() >= nextFullSync) {
+			// Awake until the next sync tick resends everything.
+			return false;
+		}
+
+		if (BuildCraftTransport.fluidPipeNetworks && FluidNetwork.isEligible(container.pipe)) {
+			return false;
+		}
+
+		if (fluidType != null && stuckTicks < STUCK_DELAY) {
+			return false;
+		}
+
+		if (renderCache.fluidID != (fluidType != null ? fluidType.getFluid().getID() : 0)) {
+			return false;
+		}
+
+		for (int i = 0; i < sections.length; i++) {
+			if (renderLevels[i] != FluidRenderData.getLevel(sections[i].amount, capacity)) {
+				return false;
+			}
+		}
+
+		return true;
 	}
 
-	private void moveFromPipe(short outputCount) {
+	private boolean moveFromPipe(short outputCount) {
 		// Move liquid from the non-center to the connected output blocks
 		boolean pushed = false;
+		boolean moved = false;
 		if (outputCount > 0) {
 			for (ForgeDirection o : directions) {
 				if (transferState[o.ordinal()] == TransferState.Output) {
@@ -263,14 +504,17 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 					}
 
 					PipeSection section = sections[o.ordinal()];
-					FluidStack liquidToPush = new FluidStack(fluidType, section.drain(flowRate, false));
+					int toPush = section.drain(flowRate, false);
 
-					if (liquidToPush.amount > 0) {
-						int filled = ((IFluidHandler) target).fill(o.getOpposite(), liquidToPush, true);
+					if (toPush > 0) {
+						// The stack can't be reused, the target may keep it.
+						int filled = ((IFluidHandler) target).fill(o.getOpposite(), new FluidStack(fluidType, toPush), true);
 						section.drain(filled, true);
 						pushed = true;
 						if (filled <= 0) {
 							outputTTL[o.ordinal()]--;
+						} else {
+							moved = true;
 						}
 					}
 				}
@@ -289,32 +533,64 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 				setFluidType(null);
 			}
 		}
+
+		return moved;
 	}
 
-	private void moveFromCenter() {
+	private boolean moveFromCenter() {
 		// Split liquids moving to output equally based on flowrate, how much each side can accept and available liquid
 		int pushAmount = sections[6].amount;
 		int totalAvailable = sections[6].getAvailable();
 		if (totalAvailable < 1 || pushAmount < 1) {
-			return;
+			return false;
 		}
 
+		boolean moved = false;
+
 		int testAmount = flowRate;
-		// Move liquid from the center to the output sides
-		Multiset<ForgeDirection> realDirections = HashMultiset.create(6);
+		// Move liquid from the center to the output sides, each side being
+		// weighted by how many times it's a destination.
+		int outputs = 0;
+		int outputCount = 0;
+
 		for (ForgeDirection direction : directions) {
 			if (transferState[direction.ordinal()] == TransferState.Output) {
-				realDirections.add(direction);
+				outputs |= 1 << direction.ordinal();
+				destinationWeights[direction.ordinal()] = 1;
+				outputCount++;
 			}
 		}
 
-		if (realDirections.size() > 0) {
+		if (outputCount > 0 && container.pipe.eventBus.hasHandlers(PipeEventFluid.FindDest.class)) {
+			Multiset<ForgeDirection> realDirections = HashMultiset.create(6);
+
+			for (ForgeDirection direction : directions) {
+				if ((outputs & (1 << direction.ordinal())) != 0) {
+					realDirections.add(direction);
+				}
+			}
+
 			container.pipe.eventBus.handleEvent(PipeEventFluid.FindDest.class, new PipeEventFluid.FindDest(container.pipe, new FluidStack(fluidType, pushAmount), realDirections));
-			float min = Math.min(flowRate * realDirections.size(), totalAvailable) / (float) flowRate / realDirections.size();
+
+			outputs = 0;
+			outputCount = realDirections.size();
 
 			for (ForgeDirection direction : realDirections.elementSet()) {
+				outputs |= 1 << direction.ordinal();
+				destinationWeights[direction.ordinal()] = realDirections.count(direction);
+			}
+		}
+
+		if (outputCount > 0) {
+			float min = Math.min(flowRate * outputCount, totalAvailable) / (float) flowRate / outputCount;
+
+			for (ForgeDirection direction : directions) {
+				if ((outputs & (1 << direction.ordinal())) == 0) {
+					continue;
+				}
+
 				int available = sections[direction.ordinal()].fill(testAmount, false);
-				int amountToPush = (int) (available * min * realDirections.count(direction));
+				int amountToPush = (int) (available * min * destinationWeights[direction.ordinal()]);
 				if (amountToPush < 1) {
 					amountToPush++;
 				}
@@ -323,12 +599,16 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 				if (amountToPush > 0) {
 					int filled = sections[direction.ordinal()].fill(amountToPush, true);
 					sections[6].drain(filled, true);
+					moved |= filled > 0;
 				}
 			}
 		}
+
+		return moved;
 	}
 
-	private void moveToCenter() {
+	private boolean moveToCenter() {
+		boolean moved = false;
 		int transferInCount = 0;
 		int spaceAvailable = capacity - sections[6].amount;
 
@@ -354,9 +634,12 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 				if (amountToPush > 0) {
 					int filled = sections[6].fill(amountToPush, true);
 					sections[dir.ordinal()].drain(filled, true);
+					moved |= filled > 0;
 				}
 			}
 		}
+
+		return moved;
 	}
 
 	private short computeCurrentConnectionStatesAndTickFlows(short newTimeSlot) {
@@ -400,63 +683,51 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 	}
 
 	/**
-	 * Computes the PacketFluidUpdate packet for transmission to a client
+	 * Updates the render cache, and returns what clients have to be told
+	 * about: bit 0 is set when the fluid changed, bits 1 to 7 when the render
+	 * level of a section did. Changes within a level are not sent at all.
 	 *
-	 * @param initPacket everything is sent, no delta stuff ( first packet )
-	 * @param persistChange The render cache change is persisted
-	 * @return PacketFluidUpdate liquid update packet
+	 * @param fullSync everything is sent, as for a new client
 	 */
-	private PacketFluidUpdate computeFluidUpdate(boolean initPacket, boolean persistChange) {
-		boolean changed = false;
-		BitSet delta = new BitSet(8);
+	private int computeFluidUpdate(boolean fullSync) {
+		boolean initPacket = fullSync;
+		int delta = fullSync ? 0xFF : 0;
 
 		if (initClient > 0) {
 			initClient--;
 			if (initClient <= 1) {
-				changed = true;
 				initClient = 0;
-				delta.set(0, 8);
+				initPacket = true;
+				delta = 0xFF;
 			}
 		}
 
-		FluidRenderData renderCacheCopy = this.renderCache;
-
-		if ((fluidType == null && renderCacheCopy.fluidID != 0)
-				|| (fluidType != null && renderCacheCopy.fluidID != fluidType.getFluid().getID())) {
-			changed = true;
+		if ((fluidType == null && renderCache.fluidID != 0)
+				|| (fluidType != null && renderCache.fluidID != fluidType.getFluid().getID())) {
 			renderCache.fluidID = fluidType != null ? fluidType.getFluid().getID() : 0;
 			renderCache.color = fluidType != null ? fluidType.getFluid().getColor(fluidType) : 0;
-			delta.set(0);
+			delta |= 1;
 		}
 
 		for (ForgeDirection dir : orientations) {
 			int pamount = renderCache.amount[dir.ordinal()];
 			int camount = sections[dir.ordinal()].amount;
 			int displayQty = (pamount * 4 + camount) / 5;
-			if (displayQty == 0 && camount > 0 || initPacket) {
+			if (displayQty == 0 && camount > 0 || initPacket || stuckTicks >= STUCK_DELAY) {
 				displayQty = camount;
 			}
 			displayQty = Math.min(capacity, displayQty);
+			renderCache.amount[dir.ordinal()] = displayQty;
 
-			if (pamount != displayQty || initPacket) {
-				changed = true;
-				renderCache.amount[dir.ordinal()] = displayQty;
-				delta.set(dir.ordinal() + 1);
-			}
-		}
-
-		if (persistChange) {
-			this.renderCache = renderCacheCopy;
-		}
+			int level = FluidRenderData.getLevel(displayQty, capacity);
 
-		if (changed || initPacket) {
-			PacketFluidUpdate packet = new PacketFluidUpdate(container.xCoord, container.yCoord, container.zCoord, initPacket);
-			packet.renderCache = renderCacheCopy;
-			packet.delta = delta;
-			return packet;
+			if (renderLevels[dir.ordinal()] != level) {
+				renderLevels[dir.ordinal()] = (byte) level;
+				delta |= 1 << (dir.ordinal() + 1);
+			}
 		}
 
-		return null;
+		return delta;
 	}
 
 	private void setFluidType(FluidStack type) {
@@ -471,9 +742,12 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 		super.sendDescriptionPacket();
 
 		initClient = CLIENT_INIT_DELAY;
+		container.wakeUp();
 	}
 
 	public FluidStack getStack(ForgeDirection direction) {
+		syncNetwork();
+
 		if (fluidType == null) {
 			return null;
 		} else {
@@ -483,6 +757,8 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 
 	@Override
 	public void dropContents() {
+		syncNetwork();
+
 		if (fluidType != null) {
 			int totalAmount = 0;
 			for (int i = 0; i < 7; i++) {
@@ -531,6 +807,7 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 	@Override
 	public void writeToNBT(NBTTagCompound nbttagcompound) {
 		super.writeToNBT(nbttagcompound);
+		syncNetwork();
 
 		if (fluidType != null) {
 			NBTTagCompound fluidTag = new NBTTagCompound();
@@ -554,7 +831,15 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 			return 0;
 		}
 
-		if (resource == null || (fluidType != null && !resource.isFluidEqual(fluidType))) {
+		if (resource == null) {
+			return 0;
+		}
+
+		if (network != null && network.isValid()) {
+			return network.fill(networkNode, from, resource, doFill);
+		}
+
+		if (fluidType != null && !resource.isFluidEqual(fluidType)) {
 			return 0;
 		}
 
@@ -567,6 +852,9 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 		}
 
 		if (doFill && filled > 0) {
+			stuckTicks = 0;
+			container.wakeUp();
+
 			if (fluidType == null) {
 				setFluidType(new FluidStack(resource, 0));
 			}
@@ -601,6 +889,7 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 
 	@Override
 	public FluidTankInfo[] getTankInfo(ForgeDirection from) {
+		syncNetwork();
 		return new FluidTankInfo[]{new FluidTankInfo(fluidType, sections[from.ordinal()].amount)};
 	}
 
@@ -608,6 +897,8 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 	public void onNeighborChange(ForgeDirection direction) {
 		super.onNeighborChange(direction);
 
+		boolean couldReceive = canReceiveCache[direction.ordinal()];
+
 		if (!container.isPipeConnected(direction)) {
 			sections[direction.ordinal()].reset();
 			transferState[direction.ordinal()] = TransferState.None;
@@ -616,6 +907,40 @@ public class PipeTransportFluids extends PipeTransport implements IFluidHandler
 		} else {
 			canReceiveCache[direction.ordinal()] = canReceiveFluid(direction);
 		}
+
+		// Tanks mark themselves dirty on every fill, only rebuild the network
+		// when the side stopped or started taking fluid.
+		if (network != null && couldReceive != canReceiveCache[direction.ordinal()]) {
+			network.invalidate();
+		}
+	}
+
+	@Override
+	public void onNeighborBlockChange(ForgeDirection direction) {
+		super.onNeighborBlockChange(direction);
+
+		// The pipe connected or disconnected, or the neighbor was replaced.
+		if (network != null) {
+			network.invalidate();
+		}
+	}
+
+	@Override
+	public void invalidate() {
+		super.invalidate();
+
+		if (network != null) {
+			network.invalidate();
+		}
+	}
+
+	@Override
+	public void onChunkUnload() {
+		super.onChunkUnload();
+
+		if (network != null) {
+			network.invalidate();
+		}
 	}
 
 	@Override
@@ -9,13 +9,14 @@
 package buildcraft.transport;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.EnumSet;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.apache.logging.log4j.Level;
 
+import io.netty.buffer.ByteBuf;
+
 import net.minecraft.entity.item.EntityItem;
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.inventory.IInventory;
@@ -24,6 +25,7 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
 import net.minecraft.nbt.NBTTagList;
 import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
 import net.minecraftforge.common.util.Constants;
 import net.minecraftforge.common.util.ForgeDirection;
 
@@ -36,29 +38,80 @@ import buildcraft.core.DefaultProps;
 import buildcraft.core.lib.inventory.Transactor;
 import buildcraft.core.lib.utils.BlockUtils;
 import buildcraft.core.lib.utils.MathUtils;
+import buildcraft.transport.network.PacketPipeBatch;
 import buildcraft.transport.network.PacketPipeTransportItemStackRequest;
 import buildcraft.transport.network.PacketPipeTransportTraveler;
 import buildcraft.transport.pipes.events.PipeEventItem;
+import buildcraft.transport.utils.DestinationCache;
 import buildcraft.transport.utils.TransportUtils;
 
 public class PipeTransportItems extends PipeTransport implements IDebuggable {
 
 	public static final int MAX_PIPE_STACKS = 64;
 	public static final int MAX_PIPE_ITEMS = 1024;
+	/**
+	 * How often, in ticks, an item pipe checks whether a player is close
+	 * enough to see its contents.
+	 */
+	public static final int OBSERVER_CHECK_TICKS = 20;
+	/**
+	 * Upper bound on the number of moves simulated ahead for one
+	 * fast-forwarded item, for items which never reach a checkpoint.
+	 */
+	private static final int MAX_FAST_FORWARD_STEPS = 256;
+	/**
+	 * How long a pipe waits before looking again for a delay line starting
+	 * at it, after not finding one.
+	 */
+	private static final int SEGMENT_SEARCH_TICKS = 100;
 	public boolean allowBouncing = false;
 	public final TravelerSet items = new TravelerSet(this);
 
+	private final ArrayList<ForgeDirection> destinations = new ArrayList<ForgeDirection>(6);
+	/** Delay lines this pipe belongs to, see {@link PipeSegment}. */
+	final ArrayList<PipeSegment> segments = new ArrayList<PipeSegment>(0);
+
+	private final DestinationCache destinationCache = new DestinationCache();
+	private final PipeSegment[] entrySegments = new PipeSegment[6];
+	private final long[] nextSegmentSearch = new long[6];
+	private int[] groupBuckets = new int[0];
+	private int[] groupChain = new int[0];
+	private PipeEventItem.AdjustSpeed adjustSpeedEvent;
+	private PipeEventItem.Entered enteredEvent;
+	private PipeEventItem.FindDest findDestEvent;
+	private PipeEventItem.ReachedCenter reachedCenterEvent;
+	private PipeEventItem.ReachedEnd reachedEndEvent;
+
+	private long ticks = 0;
+	private long nextObserverCheck = 0;
+	private long nextArrival = 0;
+	private boolean fastForward = false;
+
 	@Override
 	public IPipeTile.PipeType getPipeType() {
 		return IPipeTile.PipeType.ITEM;
 	}
 
 	public void readjustSpeed(TravelingItem item) {
-		PipeEventItem.AdjustSpeed event = new PipeEventItem.AdjustSpeed(container.pipe, item);
-		container.pipe.eventBus.handleEvent(PipeEventItem.AdjustSpeed.class, event);
-		if (!event.handled) {
-			defaultReajustSpeed(item);
+		PipeEventBus eventBus = container.pipe.eventBus;
+
+		if (eventBus.hasHandlers(PipeEventItem.AdjustSpeed.class)) {
+			if (adjustSpeedEvent == null) {
+				adjustSpeedEvent = new PipeEventItem.AdjustSpeed(container.pipe, null);
+			}
+
+			PipeEventItem.AdjustSpeed event = adjustSpeedEvent;
+			event.item = item;
+			event.handled = false;
+			eventBus.handleEvent(PipeEventItem.AdjustSpeed.class, event);
+			event.item = null;
+
+			if (event.handled) {
+				return;
+			}
 		}
+
+		defaultReajustSpeed(item);
 	}
 
 	public void defaultReajustSpeed(TravelingItem item) {
@@ -75,7 +128,7 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 		item.setSpeed(speed);
 	}
 
-	private void readjustPosition(TravelingItem item) {
+	void readjustPosition(TravelingItem item) {
 		double x = MathUtils.clamp(item.xCoord, container.xCoord + 0.01, container.xCoord + 0.99);
 		double y = MathUtils.clamp(item.yCoord, container.yCoord + 0.01, container.yCoord + 0.99);
 		double z = MathUtils.clamp(item.zCoord, container.zCoord + 0.01, container.zCoord + 0.99);
@@ -96,13 +149,13 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 
 		item.reset();
 		item.input = inputOrientation;
+		item.fastForwardArrival = -1;
+		nextArrival = 0;
 
 		readjustSpeed(item);
 		readjustPosition(item);
 
-		PipeEventItem.Entered event = new PipeEventItem.Entered(container.pipe, item);
-		container.pipe.eventBus.handleEvent(PipeEventItem.Entered.class, event);
-		if (event.cancelled) {
+		if (fireEntered(item)) {
 			return;
 		}
 
@@ -111,6 +164,7 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 		}
 
 		items.add(item);
+		container.wakeUp();
 
 		if (!container.getWorldObj().isRemote) {
 			sendTravelerPacket(item, false);
@@ -137,6 +191,31 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 		}
 	}
 
+	/**
+	 * Fires the Entered event for the given item.
+	 *
+	 * @return true if a handler cancelled the item's entry
+	 */
+	private boolean fireEntered(TravelingItem item) {
+		PipeEventBus eventBus = container.pipe.eventBus;
+
+		if (!eventBus.hasHandlers(PipeEventItem.Entered.class)) {
+			return false;
+		}
+
+		if (enteredEvent == null) {
+			enteredEvent = new PipeEventItem.Entered(container.pipe, null);
+		}
+
+		PipeEventItem.Entered event = enteredEvent;
+		event.item = item;
+		event.cancelled = false;
+		eventBus.handleEvent(PipeEventItem.Entered.class, event);
+		event.item = null;
+
+		return event.cancelled;
+	}
+
 	private void destroyPipe() {
 		BlockUtils.explodeBlock(container.getWorldObj(), container.xCoord, container.yCoord, container.zCoord);
 		container.getWorldObj().setBlockToAir(container.xCoord, container.yCoord, container.zCoord);
@@ -156,13 +235,13 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 
 		item.toCenter = true;
 		item.input = item.output.getOpposite();
+		item.fastForwardArrival = -1;
+		nextArrival = 0;
 
 		readjustSpeed(item);
 		readjustPosition(item);
 
-		PipeEventItem.Entered event = new PipeEventItem.Entered(container.pipe, item);
-		container.pipe.eventBus.handleEvent(PipeEventItem.Entered.class, event);
-		if (event.cancelled) {
+		if (fireEntered(item)) {
 			return;
 		}
 
@@ -178,7 +257,7 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 	}
 
 	public ForgeDirection resolveDestination(TravelingItem data) {
-		List<ForgeDirection> validDestinations = getPossibleMovements(data);
+		List<ForgeDirection> validDestinations = findPossibleMovements(data);
 
 		if (validDestinations.isEmpty()) {
 			return ForgeDirection.UNKNOWN;
@@ -192,21 +271,40 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 	 * implementers of IPipeEntry or TileEntityChest.
 	 */
 	public List<ForgeDirection> getPossibleMovements(TravelingItem item) {
-		LinkedList<ForgeDirection> result = new LinkedList<ForgeDirection>();
+		return new ArrayList<ForgeDirection>(findPossibleMovements(item));
+	}
 
-		item.blacklist.add(item.input.getOpposite());
+	/**
+	 * Same as {@link #getPossibleMovements}, but the returned list is reused
+	 * by the next call on this pipe.
+	 */
+	private List<ForgeDirection> findPossibleMovements(TravelingItem item) {
+		List<ForgeDirection> result = destinations;
+		result.clear();
 
-		EnumSet<ForgeDirection> sides = EnumSet.complementOf(item.blacklist);
-		sides.remove(ForgeDirection.UNKNOWN);
+		item.blacklist.add(item.input.getOpposite());
 
-		for (ForgeDirection o : sides) {
-			if (container.pipe.outputOpen(o) && canReceivePipeObjects(o, item)) {
+		for (ForgeDirection o : ForgeDirection.VALID_DIRECTIONS) {
+			if (!item.blacklist.contains(o) && container.pipe.outputOpen(o) && canReceivePipeObjects(o, item)) {
 				result.add(o);
 			}
 		}
 
-		PipeEventItem.FindDest event = new PipeEventItem.FindDest(container.pipe, item, result);
-		container.pipe.eventBus.handleEvent(PipeEventItem.FindDest.class, event);
+		boolean shuffle = true;
+		PipeEventBus eventBus = container.pipe.eventBus;
+
+		if (eventBus.hasHandlers(PipeEventItem.FindDest.class)) {
+			if (findDestEvent == null) {
+				findDestEvent = new PipeEventItem.FindDest(container.pipe, null, result);
+			}
+
+			PipeEventItem.FindDest event = findDestEvent;
+			event.item = item;
+			event.shuffle = true;
+			eventBus.handleEvent(PipeEventItem.FindDest.class, event);
+			event.item = null;
+			shuffle = event.shuffle;
+		}
 
 		if (allowBouncing && result.isEmpty()) {
 			if (canReceivePipeObjects(item.input.getOpposite(), item)) {
@@ -214,7 +312,7 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 			}
 		}
 
-		if (event.shuffle) {
+		if (shuffle) {
 			Collections.shuffle(result);
 		}
 
@@ -241,9 +339,20 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 			//return !pipe.pipe.isClosed() && pipe.pipe.transport instanceof PipeTransportItems;
 			return pipe.inputOpen(o.getOpposite()) && pipe.transport instanceof PipeTransportItems;
 		} else if (entity instanceof IInventory && item.getInsertionHandler().canInsertItem(item, (IInventory) entity)) {
-			if (Transactor.getTransactorFor(entity).add(item.getItemStack(), o.getOpposite(), false).stackSize > 0) {
-				return true;
+			if (item.getInsertionHandler() != TravelingItem.DEFAULT_INSERTION_HANDLER) {
+				return Transactor.getTransactorFor(entity).add(item.getItemStack(), o.getOpposite(), false).stackSize > 0;
 			}
+
+			long worldTime = container.getWorldObj().getTotalWorldTime();
+			Boolean cached = destinationCache.get(o, entity, item.getItemStack(), worldTime);
+
+			if (cached != null) {
+				return cached;
+			}
+
+			boolean accepts = Transactor.getTransactorFor(entity).add(item.getItemStack(), o.getOpposite(), false).stackSize > 0;
+			destinationCache.put(o, entity, item.getItemStack(), accepts, worldTime);
+			return accepts;
 		}
 
 		return false;
@@ -252,92 +361,361 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 	@Override
 	public void updateEntity() {
 		moveSolids();
+
+		for (int i = 0; i < segments.size(); i++) {
+			segments.get(i).update(container);
+		}
+	}
+
+	@Override
+	public boolean isIdle() {
+		if (!items.isIdle()) {
+			return false;
+		}
+
+		for (int i = 0; i < segments.size(); i++) {
+			if (!segments.get(i).isIdle(container)) {
+				return false;
+			}
+		}
+
+		return true;
 	}
 
 	private void moveSolids() {
+		int previousSize = items.size();
 		items.flush();
 
+		ticks++;
+		updateFastForward();
+
+		if (fastForward) {
+			if (items.size() != previousSize || ticks >= nextArrival) {
+				fastForwardSolids();
+			}
+			return;
+		}
+
 		items.iterating = true;
-		for (TravelingItem item : items) {
+		for (int i = 0; i < items.size(); i++) {
+			TravelingItem item = items.get(i);
+
 			if (item.getContainer() != this.container) {
-				items.scheduleRemoval(item);
+				// Taken over by another pipe, which owns the item now.
+				items.scheduleRemoval(i);
 				continue;
 			}
 
-			switch (item.toCenter ? item.input : item.output) {
-				case DOWN:
-					item.movePosition(0, -item.getSpeed(), 0);
-					break;
-				case UP:
-					item.movePosition(0, item.getSpeed(), 0);
-					break;
-				case WEST:
-					item.movePosition(-item.getSpeed(), 0, 0);
-					break;
-				case EAST:
-					item.movePosition(item.getSpeed(), 0, 0);
-					break;
-				case NORTH:
-					item.movePosition(0, 0, -item.getSpeed());
-					break;
-				case SOUTH:
-					item.movePosition(0, 0, item.getSpeed());
-					break;
+			moveSolid(item);
+			// Hooks and inventories may have resized the stack in place.
+			items.refreshWeight(i);
+		}
+		items.iterating = false;
+		items.flush();
+	}
+
+	/**
+	 * Switches between full simulation and fast-forward every
+	 * OBSERVER_CHECK_TICKS. Fast-forward is only used on the server, when
+	 * enabled in the config and no player is close enough to see the items.
+	 */
+	private void updateFastForward() {
+		if (ticks < nextObserverCheck) {
+			return;
+		}
+
+		nextObserverCheck = ticks + OBSERVER_CHECK_TICKS;
+
+		World world = container.getWorldObj();
+		boolean unobserved = BuildCraftTransport.itemPipeFastForward && !world.isRemote
+				&& world.getClosestPlayer(container.xCoord + 0.5, container.yCoord + 0.5, container.zCoord + 0.5,
+						DefaultProps.PIPE_CONTENTS_RENDER_DIST) == null;
+
+		if (fastForward && !unobserved) {
+			// The items haven't moved in this tick yet.
+			catchUpItems(ticks);
+		}
+
+		fastForward = unobserved;
+		nextArrival = 0;
+	}
+
+	/**
+	 * Moves fast-forwarded items. Instead of being moved every tick, an item
+	 * is only handled on the tick it reaches its next checkpoint (the center
+	 * or the end of the pipe). That tick is found once by replaying its
+	 * moves, so items arrive exactly when they would have been simulated.
+	 */
+	private void fastForwardSolids() {
+		nextArrival = Long.MAX_VALUE;
+		long next = Long.MAX_VALUE;
+
+		items.iterating = true;
+		for (int i = 0; i < items.size(); i++) {
+			TravelingItem item = items.get(i);
+
+			if (item.getContainer() != this.container) {
+				items.scheduleRemoval(i);
+				continue;
 			}
 
-			if ((item.toCenter && middleReached(item)) || outOfBounds(item)) {
-				if (item.isCorrupted()) {
-					items.remove(item);
-					continue;
-				}
+			if (item.fastForwardArrival < 0) {
+				scheduleArrival(item);
+			}
 
-				item.toCenter = false;
+			if (item.fastForwardArrival <= ticks) {
+				catchUp(item, ticks + 1);
+				checkSolid(item);
+				items.refreshWeight(i);
+				// Plan the next leg from the item's new state on the next tick.
+				next = ticks + 1;
+			} else {
+				next = Math.min(next, item.fastForwardArrival);
+			}
+		}
+		items.iterating = false;
+		items.flush();
 
-				// Reajusting to the middle
-				item.setPosition(container.xCoord + 0.5, container.yCoord + TransportUtils.getPipeFloorOf(item.getItemStack()), container.zCoord + 0.5);
+		nextArrival = Math.min(nextArrival, next);
+	}
 
-				if (item.output == ForgeDirection.UNKNOWN) {
-					if (items.scheduleRemoval(item)) {
-						dropItem(item);
-					}
-				} else {
-					PipeEventItem.ReachedCenter event = new PipeEventItem.ReachedCenter(container.pipe, item);
-					container.pipe.eventBus.handleEvent(PipeEventItem.ReachedCenter.class, event);
-				}
+	private void scheduleArrival(TravelingItem item) {
+		double x = item.xCoord;
+		double y = item.yCoord;
+		double z = item.zCoord;
+		int steps = 1;
 
-			} else if (!item.toCenter && endReached(item)) {
-				if (item.isCorrupted()) {
-					items.remove(item);
-					continue;
+		stepSolid(item);
+		while (!checkpointReached(item) && steps < MAX_FAST_FORWARD_STEPS) {
+			stepSolid(item);
+			steps++;
+		}
+
+		item.setPosition(x, y, z);
+		item.fastForwardStart = ticks;
+		item.fastForwardArrival = ticks + steps - 1;
+	}
+
+	/**
+	 * Brings a fast-forwarded item to where full simulation would have moved
+	 * it by the start of the given tick.
+	 */
+	private void catchUp(TravelingItem item, long tick) {
+		if (item.fastForwardArrival < 0) {
+			return;
+		}
+
+		for (long t = item.fastForwardStart; t < tick; t++) {
+			stepSolid(item);
+		}
+
+		item.fastForwardArrival = -1;
+	}
+
+	private void catchUpItems(long tick) {
+		for (int i = 0; i < items.size(); i++) {
+			catchUp(items.get(i), tick);
+		}
+		nextArrival = 0;
+	}
+
+	private boolean checkpointReached(TravelingItem item) {
+		return (item.toCenter && middleReached(item)) || outOfBounds(item) || (!item.toCenter && endReached(item));
+	}
+
+	private void moveSolid(TravelingItem item) {
+		stepSolid(item);
+		checkSolid(item);
+	}
+
+	void stepSolid(TravelingItem item) {
+		switch (item.toCenter ? item.input : item.output) {
+			case DOWN:
+				item.movePosition(0, -item.getSpeed(), 0);
+				break;
+			case UP:
+				item.movePosition(0, item.getSpeed(), 0);
+				break;
+			case WEST:
+				item.movePosition(-item.getSpeed(), 0, 0);
+				break;
+			case EAST:
+				item.movePosition(item.getSpeed(), 0, 0);
+				break;
+			case NORTH:
+				item.movePosition(0, 0, -item.getSpeed());
+				break;
+			case SOUTH:
+				item.movePosition(0, 0, item.getSpeed());
+				break;
+		}
+	}
+
+	private void checkSolid(TravelingItem item) {
+		if ((item.toCenter && middleReached(item)) || outOfBounds(item)) {
+			if (item.isCorrupted()) {
+				items.remove(item);
+				return;
+			}
+
+			item.toCenter = false;
+			moveToCenter(item);
+
+			if (item.output == ForgeDirection.UNKNOWN) {
+				if (items.scheduleRemoval(item)) {
+					dropItem(item);
+				}
+			} else if (container.pipe.eventBus.hasHandlers(PipeEventItem.ReachedCenter.class)) {
+				if (reachedCenterEvent == null) {
+					reachedCenterEvent = new PipeEventItem.ReachedCenter(container.pipe, null);
 				}
 
-				TileEntity tile = container.getTile(item.output, true);
+				PipeEventItem.ReachedCenter event = reachedCenterEvent;
+				event.item = item;
+				container.pipe.eventBus.handleEvent(PipeEventItem.ReachedCenter.class, event);
+				event.item = null;
+			}
 
-				PipeEventItem.ReachedEnd event = new PipeEventItem.ReachedEnd(container.pipe, item, tile);
-				container.pipe.eventBus.handleEvent(PipeEventItem.ReachedEnd.class, event);
-				boolean handleItem = !event.handled;
+		} else if (!item.toCenter && endReached(item)) {
+			if (item.isCorrupted()) {
+				items.remove(item);
+				return;
+			}
+
+			TileEntity tile = container.getTile(item.output, true);
+			boolean handleItem = true;
 
-				// If the item has not been scheduled to removal by the hook
-				if (handleItem && items.scheduleRemoval(item)) {
-					handleTileReached(item, tile);
+			if (container.pipe.eventBus.hasHandlers(PipeEventItem.ReachedEnd.class)) {
+				if (reachedEndEvent == null) {
+					reachedEndEvent = new PipeEventItem.ReachedEnd(container.pipe, null, null);
 				}
+
+				PipeEventItem.ReachedEnd event = reachedEndEvent;
+				event.item = item;
+				event.dest = tile;
+				event.handled = false;
+				container.pipe.eventBus.handleEvent(PipeEventItem.ReachedEnd.class, event);
+				event.item = null;
+				event.dest = null;
+				handleItem = !event.handled;
+			}
+
+			// If the item has not been scheduled to removal by the hook
+			if (handleItem && items.scheduleRemoval(item)) {
+				handleTileReached(item, tile);
 			}
 		}
-		items.iterating = false;
-		items.flush();
+	}
+
+	// Reajusting to the middle
+	private void moveToCenter(TravelingItem item) {
+		item.setPosition(container.xCoord + 0.5, container.yCoord + TransportUtils.getPipeFloorOf(item.getItemStack()), container.zCoord + 0.5);
 	}
 
 	private boolean passToNextPipe(TravelingItem item, TileEntity tile) {
 		if (tile instanceof IPipeTile) {
 			Pipe<?> pipe = (Pipe<?>) ((IPipeTile) tile).getPipe();
 			if (BlockGenericPipe.isValid(pipe) && pipe.transport instanceof PipeTransportItems) {
-				((PipeTransportItems) pipe.transport).injectItem(item, item.output);
+				PipeTransportItems next = (PipeTransportItems) pipe.transport;
+
+				if (!next.enterSegment(item, item.output)) {
+					next.injectItem(item, item.output);
+				}
 				return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * Hands the item to the delay line starting at this pipe in the given
+	 * direction, if there is one.
+	 *
+	 * @return false if the item has to be injected the usual way
+	 */
+	private boolean enterSegment(TravelingItem item, ForgeDirection direction) {
+		World world = container.getWorldObj();
+
+		if (!BuildCraftTransport.itemPipeDelayLines || world.isRemote || item.isCorrupted()) {
+			return false;
+		}
+
+		int side = direction.ordinal();
+		PipeSegment segment = entrySegments[side];
+
+		if (segment == null || !segment.isValid()) {
+			long now = world.getTotalWorldTime();
+
+			if (now < nextSegmentSearch[side]) {
+				return false;
+			}
+
+			segment = PipeSegment.build(container, direction);
+			entrySegments[side] = segment;
+
+			if (segment == null) {
+				nextSegmentSearch[side] = now + SEGMENT_SEARCH_TICKS;
+				return false;
+			}
+		}
+
+		return segment.enter(item);
+	}
+
+	/**
+	 * Moves an item through this pipe as full simulation would, starting from
+	 * its entry in the given direction and making at most the given number of
+	 * moves. Used by delay lines, the item is not added to the pipe.
+	 *
+	 * @return the number of moves it took the item to reach the end of the
+	 * pipe, or -1 if it is still inside after the given number of moves
+	 */
+	int traverse(TravelingItem item, ForgeDirection direction, int maxMoves) {
+		item.reset();
+		item.input = direction;
+		item.output = direction;
+
+		if (BlockGenericPipe.isValid(container.pipe)) {
+			readjustSpeed(item);
+		} else {
+			// The pipe was removed, but its items are still moved through.
+			defaultReajustSpeed(item);
+		}
+		readjustPosition(item);
+
+		for (int moves = 1; moves <= maxMoves; moves++) {
+			stepSolid(item);
+
+			if ((item.toCenter && middleReached(item)) || outOfBounds(item)) {
+				item.toCenter = false;
+				moveToCenter(item);
+			} else if (!item.toCenter && endReached(item)) {
+				return moves;
+			}
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Takes back an item from a delay line, where {@link #traverse} left it.
+	 */
+	void receiveSegmentItem(TravelingItem item) {
+		item.fastForwardArrival = -1;
+		nextArrival = 0;
+		items.add(item);
+		container.wakeUp();
+		sendTravelerPacket(item, false);
+	}
+
+	private void invalidateSegments() {
+		for (int i = segments.size() - 1; i >= 0; i--) {
+			if (i < segments.size()) {
+				segments.get(i).invalidate();
+			}
+		}
+	}
+
 	private void handleTileReached(TravelingItem item, TileEntity tile) {
 		if (passToNextPipe(item, tile)) {
 			// NOOP
@@ -349,6 +727,8 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 				}
 
 				if (item.getItemStack().stackSize > 0) {
+					// The inventory no longer takes this item, stop routing to it.
+					destinationCache.invalidate(item.output);
 					reverseItem(item);
 				}
 			}
@@ -433,6 +813,12 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 	public void writeToNBT(NBTTagCompound nbt) {
 		super.writeToNBT(nbt);
 
+		// Items held by delay lines are not saved anywhere.
+		invalidateSegments();
+
+		// This tick's moves are done, save where the items really are.
+		catchUpItems(ticks + 1);
+
 		NBTTagList nbttaglist = new NBTTagList();
 
 		for (TravelingItem item : items) {
@@ -478,31 +864,72 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 	}
 
 	private void sendTravelerPacket(TravelingItem data, boolean forceStackRefresh) {
-		PacketPipeTransportTraveler packet = new PacketPipeTransportTraveler(data, forceStackRefresh);
-		BuildCraftTransport.instance.sendToPlayers(packet, container.getWorldObj(), container.xCoord, container.yCoord, container.zCoord, DefaultProps.PIPE_CONTENTS_RENDER_DIST);
+		ByteBuf entry = BuildCraftTransport.pipeSyncBatcher.startEntry(container, PacketPipeBatch.KIND_TRAVELER, DefaultProps.PIPE_CONTENTS_RENDER_DIST);
+		PacketPipeTransportTraveler.writeEntry(entry, container, data, forceStackRefresh);
 	}
 
-	public int getNumberOfStacks() {
-		int num = 0;
-		for (TravelingItem item : items) {
-			if (!item.ignoreWeight()) {
-				num++;
-			}
+	/**
+	 * Called by the traveler set when an item has left this pipe. On the
+	 * client, an item that did not move on to another pipe is gone for good
+	 * and is released from the traveler cache.
+	 */
+	void onTravelerRemoved(TravelingItem item) {
+		if (item.getContainer() == container && container.getWorldObj() != null && container.getWorldObj().isRemote) {
+			TravelingItem.clientCache.release(item);
+		}
+	}
+
+	@Override
+	public void invalidate() {
+		releaseClientItems();
+		invalidateSegments();
+	}
+
+	@Override
+	public void onChunkUnload() {
+		releaseClientItems();
+		invalidateSegments();
+	}
+
+	private void releaseClientItems() {
+		if (container != null && container.getWorldObj() != null && container.getWorldObj().isRemote) {
+			items.clear();
 		}
-		return num;
+	}
+
+	public int getNumberOfStacks() {
+		return items.getNumberOfStacks();
 	}
 
 	public int getNumberOfItems() {
-		int num = 0;
-		for (TravelingItem item : items) {
-			if (!item.ignoreWeight() && item.getItemStack() != null) {
-				num += item.getItemStack().stackSize;
+		return items.getNumberOfItems();
+	}
+
+	protected void neighborChange() {
+	}
+
+	@Override
+	public void onNeighborChange(ForgeDirection direction) {
+		super.onNeighborChange(direction);
+
+		// Acceptances are not flushed here: inventories mark themselves dirty
+		// on every insertion, and probing them does too. A replaced tile is
+		// seen by the cache itself, refusals only last a tick, and a failed
+		// delivery drops the side.
+		nextSegmentSearch[direction.ordinal()] = 0;
+
+		for (int i = segments.size() - 1; i >= 0; i--) {
+			if (i < segments.size()) {
+				segments.get(i).onNeighborChange(container);
 			}
 		}
-		return num;
 	}
 
-	protected void neighborChange() {
+	@Override
+	public void onNeighborBlockChange(ForgeDirection direction) {
+		super.onNeighborBlockChange(direction);
+
+		destinationCache.invalidate(direction);
 	}
 
 	@Override
@@ -524,18 +951,51 @@ public class PipeTransportItems extends PipeTransport implements IDebuggable {
 	
 	/**
 	 * Group all items that are similar, that is to say same dmg, same id, same
-	 * nbt and no contribution controlling them
+	 * nbt and no contribution controlling them. Items are bucketed by their
+	 * grouping hash, so each one is only compared to likely candidates.
 	 */
 	public void groupEntities() {
-		for (TravelingItem item : items) {
+		int size = items.size();
+
+		if (size < 2) {
+			return;
+		}
+
+		int bucketCount = Integer.highestOneBit(size) << 2;
+		int mask = bucketCount - 1;
+
+		if (groupBuckets.length < bucketCount) {
+			groupBuckets = new int[bucketCount];
+		}
+
+		if (groupChain.length < size) {
+			groupChain = new int[groupBuckets.length];
+		}
+
+		Arrays.fill(groupBuckets, 0, bucketCount, -1);
+
+		for (int i = 0; i < size; i++) {
+			TravelingItem item = items.get(i);
 			if (item.isCorrupted()) {
 				continue;
 			}
-			for (TravelingItem otherItem : items) {
-				if (item.tryMergeInto(otherItem)) {
+
+			int bucket = item.getGroupingHash() & mask;
+			boolean merged = false;
+
+			for (int j = groupBuckets[bucket]; j >= 0; j = groupChain[j]) {
+				if (item.tryMergeInto(items.get(j))) {
+					items.refreshWeight(i);
+					items.refreshWeight(j);
+					merged = true;
 					break;
 				}
 			}
+
+			if (!merged) {
+				groupChain[i] = groupBuckets[bucket];
+				groupBuckets[bucket] = i;
+			}
 		}
 	}
 
@@ -13,6 +13,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import io.netty.buffer.ByteBuf;
+
 import net.minecraft.entity.player.EntityPlayer;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NBTTagCompound;
@@ -24,7 +26,6 @@ import cofh.api.energy.IEnergyHandler;
 import cofh.api.energy.IEnergyReceiver;
 import buildcraft.BuildCraftCore;
 import buildcraft.BuildCraftTransport;
-import buildcraft.api.core.SafeTimeTracker;
 import buildcraft.api.power.IEngine;
 import buildcraft.api.power.IRedstoneEngine;
 import buildcraft.api.tiles.IDebuggable;
@@ -32,6 +33,7 @@ import buildcraft.api.transport.IPipeTile;
 import buildcraft.core.CompatHooks;
 import buildcraft.core.DefaultProps;
 import buildcraft.core.lib.block.TileBuildCraft;
+import buildcraft.transport.network.PacketPipeBatch;
 import buildcraft.transport.network.PacketPowerUpdate;
 import buildcraft.transport.pipes.PipePowerCobblestone;
 import buildcraft.transport.pipes.PipePowerDiamond;
@@ -49,6 +51,7 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 	
 	private static final int DISPLAY_SMOOTHING = 10;
 	private static final int OVERLOAD_TICKS = 60;
+	private static final int MAX_PROBE_DELAY = 32;
 
 	public short[] displayPower = new short[6];
 	public int[] nextPowerQuery = new int[6];
@@ -63,6 +66,10 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 
 	private final TileEntity[] tiles = new TileEntity[6];
 	private final Object[] providers = new Object[6];
+	private final IEnergyReceiver[] receivers = new IEnergyReceiver[6];
+	private final int[] cachedDemand = new int[6];
+	private final int[] probeDelay = new int[6];
+	private final long[] nextProbe = new long[6];
 
 	private boolean needsInit = true;
 
@@ -73,7 +80,14 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 	private long currentDate;
 	private double[] internalPower = new double[6];
 
-	private SafeTimeTracker tracker = new SafeTimeTracker(2 * BuildCraftCore.updateFactor);
+	private final short[] sentLevels = new short[6];
+	private boolean sentOverload;
+	private long nextFullSync;
+	private boolean changedSinceFullSync;
+
+	private PowerNetwork network;
+	private int networkNode;
+	private boolean networkQuerying;
 
 	public PipeTransportPower() {
 		for (int i = 0; i < 6; ++i) {
@@ -147,7 +161,36 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 	@Override
 	public void onNeighborChange(ForgeDirection side) {
 		super.onNeighborChange(side);
+
+		int o = side.ordinal();
+		TileEntity oldTile = tiles[o];
+		Object oldProvider = providers[o];
+
 		updateTile(side);
+
+		// Receivers may mark themselves dirty on every tick they get energy,
+		// only rebuild the network when the neighbor itself changed.
+		if (network != null && (tiles[o] != oldTile || providers[o] != oldProvider)) {
+			network.invalidate();
+		}
+	}
+
+	@Override
+	public void allowInput(ForgeDirection from, boolean allow) {
+		if (network != null && from != ForgeDirection.UNKNOWN && inputOpen(from) != allow) {
+			network.invalidate();
+		}
+
+		super.allowInput(from, allow);
+	}
+
+	@Override
+	public void allowOutput(ForgeDirection to, boolean allow) {
+		if (network != null && to != ForgeDirection.UNKNOWN && outputOpen(to) != allow) {
+			network.invalidate();
+		}
+
+		super.allowOutput(to, allow);
 	}
 
     private void updateTile(ForgeDirection side) {
@@ -162,6 +205,9 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
             displayPower[o] = 0;
         }
 		providers[o] = getEnergyProvider(o);
+		receivers[o] = providers[o] instanceof IEnergyReceiver && !(providers[o] instanceof IPipeTile)
+				? (IEnergyReceiver) providers[o] : null;
+		resetProbe(o);
     }
 
 	private void init() {
@@ -200,6 +246,216 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
             }
         }
 
+		updateNetwork();
+
+		if (network != null) {
+			network.update();
+		} else {
+			moveEnergy();
+		}
+
+		// All the pipes sync on the same ticks, so that the updates of a
+		// chunk go out together.
+		if (container.getWorldObj().getTotalWorldTime() % Math.max(1, 2 * BuildCraftCore.updateFactor) == 0) {
+			sendDisplayUpdate();
+		}
+	}
+
+	/**
+	 * Queues the display stages which changed since they were last sent,
+	 * along with the overload flag, if anything changed at all. Changes are
+	 * only sent to players close to the pipe, so everything is also sent
+	 * again every longUpdateFactor updates while the pipe shows power or
+	 * changed, which catches up the others once they come closer.
+	 */
+	private void sendDisplayUpdate() {
+		long now = container.getWorldObj().getTotalWorldTime();
+		boolean overloaded = isOverloaded();
+		boolean fullSync = false;
+		int changed = 0;
+
+		if (now >= nextFullSync) {
+			fullSync = changedSinceFullSync || overloaded;
+
+			for (int i = 0; i < 6 && !fullSync; i++) {
+				fullSync = PacketPowerUpdate.getLevel(displayPower[i]) != 0;
+			}
+		}
+
+		for (int i = 0; i < 6; i++) {
+			short level = (short) PacketPowerUpdate.getLevel(displayPower[i]);
+
+			if (sentLevels[i] != level || fullSync) {
+				sentLevels[i] = level;
+				changed |= 1 << i;
+			}
+		}
+
+		if (fullSync || changed == 0x3F) {
+			nextFullSync = now + Math.max(1, 2 * BuildCraftCore.updateFactor) * BuildCraftCore.longUpdateFactor;
+			changedSinceFullSync = false;
+		} else if (changed != 0 || overloaded != sentOverload) {
+			changedSinceFullSync = true;
+		}
+
+		if (changed != 0 || overloaded != sentOverload) {
+			sentOverload = overloaded;
+
+			ByteBuf entry = BuildCraftTransport.pipeSyncBatcher.startEntry(container, PacketPipeBatch.KIND_POWER, DefaultProps.PIPE_CONTENTS_RENDER_DIST);
+			PacketPowerUpdate.writeEntry(entry, changed, overloaded, sentLevels);
+		}
+	}
+
+	@Override
+	public void sendDescriptionPacket() {
+		super.sendDescriptionPacket();
+
+		// Everything is sent again on the next update.
+		Arrays.fill(sentLevels, (short) -1);
+	}
+
+	/**
+	 * Joins or leaves a power network, depending on the config.
+	 */
+	private void updateNetwork() {
+		if (network != null && !network.isValid()) {
+			network = null;
+		}
+
+		if (!BuildCraftTransport.powerPipeNetworks) {
+			if (network != null) {
+				network.invalidate();
+			}
+		} else if (network == null) {
+			PowerNetwork.build(container);
+		}
+	}
+
+	/**
+	 * Called when the pipe is added to a network, which takes over moving
+	 * its energy.
+	 *
+	 * @return the energy the pipe had buffered
+	 */
+	double joinNetwork(PowerNetwork newNetwork, int node) {
+		double buffered = 0;
+
+		for (int i = 0; i < 6; ++i) {
+			buffered += internalPower[i] + internalNextPower[i];
+		}
+
+		Arrays.fill(internalPower, 0);
+		Arrays.fill(internalNextPower, 0);
+		Arrays.fill(powerQuery, 0);
+		Arrays.fill(nextPowerQuery, 0);
+
+		network = newNetwork;
+		networkNode = node;
+		return buffered;
+	}
+
+	/**
+	 * Called when the network the pipe was part of is broken up.
+	 *
+	 * @param energy the energy the network held in this pipe, spread back
+	 * over the connected sides
+	 */
+	void leaveNetwork(double energy) {
+		network = null;
+		networkQuerying = false;
+
+		int connected = 0;
+
+		for (int i = 0; i < 6; i++) {
+			if (tiles[i] != null) {
+				connected++;
+			}
+		}
+
+		if (energy > 0 && connected > 0) {
+			for (int i = 0; i < 6; i++) {
+				if (tiles[i] != null) {
+					internalNextPower[i] += energy / connected;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the valid network the pipe is part of, if any.
+	 */
+	PowerNetwork getNetwork() {
+		return network != null && network.isValid() ? network : null;
+	}
+
+	IEnergyReceiver getReceiver(ForgeDirection side) {
+		return receivers[side.ordinal()];
+	}
+
+	/**
+	 * Returns how much energy the receiver on the given side, if any, would
+	 * accept. Receivers which keep wanting nothing are asked less and less
+	 * often, up to every MAX_PROBE_DELAY ticks, and are taken as wanting
+	 * nothing in between.
+	 */
+	int probeDemand(ForgeDirection side) {
+		int o = side.ordinal();
+		IEnergyReceiver receiver = receivers[o];
+
+		if (receiver == null || !outputOpen(side)) {
+			return 0;
+		}
+
+		long now = container.getWorldObj().getTotalWorldTime();
+
+		if (now < nextProbe[o]) {
+			return cachedDemand[o];
+		}
+
+		int request = 0;
+
+		if (receiver.canConnectEnergy(side.getOpposite())) {
+			request = receiver.receiveEnergy(side.getOpposite(), maxPower, true);
+		}
+
+		cachedDemand[o] = Math.max(0, request);
+
+		if (request > 0) {
+			probeDelay[o] = 0;
+		} else {
+			probeDelay[o] = probeDelay[o] == 0 ? 1 : Math.min(MAX_PROBE_DELAY, probeDelay[o] * 2);
+			nextProbe[o] = now + probeDelay[o];
+		}
+
+		return cachedDemand[o];
+	}
+
+	/**
+	 * Makes the receiver on the given side be asked for its demand again on
+	 * the next update.
+	 */
+	void resetProbe(int side) {
+		cachedDemand[side] = 0;
+		probeDelay[side] = 0;
+		nextProbe[side] = 0;
+	}
+
+	/**
+	 * Called by the network on each of its updates, with the energy that
+	 * went through each side of the pipe.
+	 */
+	void updateFromNetwork(double[] flow, int offset, boolean querying) {
+		System.arraycopy(displayPower, 0, prevDisplayPower, 0, 6);
+
+		for (int i = 0; i < 6; i++) {
+			displayPower[i] = (short) Math.min(Short.MAX_VALUE, flow[offset + i]);
+		}
+
+		smoothDisplayPower();
+		networkQuerying = querying;
+	}
+
+	private void moveEnergy() {
 		// Send the power to nearby pipes who requested it
 		System.arraycopy(displayPower, 0, prevDisplayPower, 0, 6);
 		Arrays.fill(displayPower, (short) 0);
@@ -230,25 +486,18 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 										watts);
 								internalPower[i] -= watts;
 								dbgEnergyOutput[j] += watts;
-							} else {
+							} else if (receivers[j] != null) {
 								int iWatts = (int) watts;
-								if (ep instanceof IEnergyHandler) {
-									IEnergyHandler handler = (IEnergyHandler) ep;
-									if (handler.canConnectEnergy(ForgeDirection.VALID_DIRECTIONS[j].getOpposite())) {
-										watts = handler.receiveEnergy(ForgeDirection.VALID_DIRECTIONS[j].getOpposite(),
-												iWatts, false);
-									}
-									internalPower[i] -= iWatts;
-									dbgEnergyOutput[j] += iWatts;
-								} else if (ep instanceof IEnergyReceiver) {
-									IEnergyReceiver handler = (IEnergyReceiver) ep;
-									if (handler.canConnectEnergy(ForgeDirection.VALID_DIRECTIONS[j].getOpposite())) {
-										watts = handler.receiveEnergy(ForgeDirection.VALID_DIRECTIONS[j].getOpposite(),
-												iWatts, false);
+								IEnergyReceiver handler = receivers[j];
+								if (handler.canConnectEnergy(ForgeDirection.VALID_DIRECTIONS[j].getOpposite())) {
+									watts = handler.receiveEnergy(ForgeDirection.VALID_DIRECTIONS[j].getOpposite(),
+											iWatts, false);
+									if (watts > 0) {
+										resetProbe(j);
 									}
-									internalPower[i] -= iWatts;
-									dbgEnergyOutput[j] += iWatts;
 								}
+								internalPower[i] -= iWatts;
+								dbgEnergyOutput[j] += iWatts;
 							}
 
 							displayPower[j] += watts;
@@ -258,48 +507,13 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 				}
 			}
 		}
-		float highestPower = 0.0F;
-		for (int i = 0; i < 6; i++) {
-			displayPower[i] = (short) Math.floor((float) (prevDisplayPower[i] * (DISPLAY_SMOOTHING - 1) + displayPower[i]) / DISPLAY_SMOOTHING);
-			if (displayPower[i] > highestPower) {
-				highestPower = displayPower[i];
-			}
-		}
-		overload += highestPower > ((float) maxPower) * 0.95F ? 1 : -1;
-		if (overload < 0) {
-			overload = 0;
-		}
-		if (overload > OVERLOAD_TICKS) {
-			overload = OVERLOAD_TICKS;
-		}
+		smoothDisplayPower();
 
 		// Compute the tiles requesting energy that are not power pipes
 		for (ForgeDirection dir : ForgeDirection.VALID_DIRECTIONS) {
-			if (!outputOpen(dir)) {
-				continue;
-			}
-
-			Object tile = providers[dir.ordinal()];
-
-			if (tile instanceof IPipeTile && ((Pipe<?>) ((IPipeTile) tile).getPipe()).transport instanceof PipeTransportPower) {
-				continue;
-			}
-			if (tile instanceof IEnergyHandler) {
-				IEnergyHandler handler = (IEnergyHandler) tile;
-				if (handler.canConnectEnergy(dir.getOpposite())) {
-					int request = handler.receiveEnergy(dir.getOpposite(), this.maxPower, true);
-					if (request > 0) {
-						requestEnergy(dir, request);
-					}
-				}
-			} else if (tile instanceof IEnergyReceiver) {
-				IEnergyReceiver handler = (IEnergyReceiver) tile;
-				if (handler.canConnectEnergy(dir.getOpposite())) {
-					int request = handler.receiveEnergy(dir.getOpposite(), this.maxPower, true);
-					if (request > 0) {
-						requestEnergy(dir, request);
-					}
-				}
+			int request = probeDemand(dir);
+			if (request > 0) {
+				requestEnergy(dir, request);
 			}
 		}
 
@@ -332,14 +546,26 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 				}
 			}
 		}
+	}
 
-
-		if (tracker.markTimeIfDelay(container.getWorldObj())) {
-			PacketPowerUpdate packet = new PacketPowerUpdate(container.xCoord, container.yCoord, container.zCoord);
-
-			packet.displayPower = displayPower;
-			packet.overload = isOverloaded();
-			BuildCraftTransport.instance.sendToPlayers(packet, container.getWorldObj(), container.xCoord, container.yCoord, container.zCoord, DefaultProps.PIPE_CONTENTS_RENDER_DIST);
+	/**
+	 * Smoothes the energy just moved through each side into the displayed
+	 * power, and updates the overload counter from it.
+	 */
+	private void smoothDisplayPower() {
+		float highestPower = 0.0F;
+		for (int i = 0; i < 6; i++) {
+			displayPower[i] = (short) Math.floor((float) (prevDisplayPower[i] * (DISPLAY_SMOOTHING - 1) + displayPower[i]) / DISPLAY_SMOOTHING);
+			if (displayPower[i] > highestPower) {
+				highestPower = displayPower[i];
+			}
+		}
+		overload += highestPower > ((float) maxPower) * 0.95F ? 1 : -1;
+		if (overload < 0) {
+			overload = 0;
+		}
+		if (overload > OVERLOAD_TICKS) {
+			overload = OVERLOAD_TICKS;
 		}
 	}
 
@@ -385,6 +611,12 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 			}
 		}
 
+		if (network != null && network.isValid()) {
+			double accepted = network.receiveEnergy(networkNode, from, val);
+			dbgEnergyInput[side] += accepted;
+			return accepted;
+		}
+
 		if (internalNextPower[side] > maxPower) {
 			return 0;
 		}
@@ -423,6 +655,24 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 		currentDate = container.getWorldObj().getTotalWorldTime();
 	}
 
+	@Override
+	public void invalidate() {
+		super.invalidate();
+
+		if (network != null) {
+			network.invalidate();
+		}
+	}
+
+	@Override
+	public void onChunkUnload() {
+		super.onChunkUnload();
+
+		if (network != null) {
+			network.invalidate();
+		}
+	}
+
 	@Override
 	public void readFromNBT(NBTTagCompound nbttagcompound) {
 		super.readFromNBT(nbttagcompound);
@@ -458,7 +708,25 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 		overload = packetPower.overload ? OVERLOAD_TICKS : 0;
 	}
 
+	/**
+	 * Client-side handler for the power entries of pipe batches. Only the
+	 * sides set in changed are updated.
+	 */
+	public void handlePowerUpdate(int changed, short[] levels, boolean overloaded) {
+		for (int i = 0; i < 6; i++) {
+			if ((changed & (1 << i)) != 0) {
+				displayPower[i] = levels[i];
+			}
+		}
+
+		overload = overloaded ? OVERLOAD_TICKS : 0;
+	}
+
 	public boolean isQueryingPower() {
+		if (network != null) {
+			return networkQuerying;
+		}
+
 		for (int d : powerQuery) {
 			if (d > 0) {
 				return true;
@@ -498,6 +766,10 @@ public class PipeTransportPower extends PipeTransport implements IDebuggable {
 		info.add("- energy: IN " + Arrays.toString(dbgEnergyInput) + ", OUT " + Arrays.toString(dbgEnergyOutput));
 		info.add("- energy: OFFERED " + Arrays.toString(dbgEnergyOffered));
 
+		if (getNetwork() != null) {
+			info.add("- network: " + network.size() + " pipes");
+		}
+
 		int[] totalPowerQuery = new int[6];
 		for (int i = 0; i < 6; ++i) {
 			if (internalPower[i] > 0) {
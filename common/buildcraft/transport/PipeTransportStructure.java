@@ -34,4 +34,9 @@ public class PipeTransportStructure extends PipeTransport {
 
         return false;
 	}
+
+	@Override
+	public boolean isIdle() {
+		return true;
+	}
 }
@@ -0,0 +1,437 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.transport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import gnu.trove.list.array.TIntArrayList;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+import net.minecraftforge.common.util.ForgeDirection;
+
+import cofh.api.energy.IEnergyReceiver;
+import buildcraft.BuildCraftTransport;
+import buildcraft.transport.pipes.PipePowerWood;
+
+/**
+ * A connected group of power pipes, solved as a whole once per tick instead
+ * of each pipe negotiating with its neighbours.
+ *
+ * Wooden power pipes are the sources of the network. Every other pipe is
+ * fed by the closest of them, so the network is a forest of trees rooted at
+ * the sources. Each tick, the demand of the receivers around the pipes is
+ * summed up each tree, capped by the capacity of every pipe on the way and
+ * grown by the loss of each pipe when pipe loss is enabled. Sources are
+ * asked for that much, and the energy they handed over is split back down
+ * the trees in proportion to the demand.
+ *
+ * Energy is only lost to pipe loss. What receivers refuse, or what is left
+ * over when rounding to whole RF, stays in the pool of the pipe holding it
+ * and is sent out first on the next tick. Pipes bring their buffered energy
+ * along when they join, and get their pool back when the network breaks up.
+ *
+ * The energy shown flowing through each side of a pipe, and whether the
+ * pipe is overloaded, are derived from the energy moved.
+ */
+public final class PowerNetwork {
+	private static final int NONE = -1;
+
+	private final World world;
+	private final PipeTransportPower[] pipes;
+	private final boolean[] source;
+	private final double[] pool;
+
+	/** Pipes each pipe may send energy to, from edges[edgeStart[n]] to edges[edgeStart[n + 1] - 1]. */
+	private final int[] edgeStart;
+	private final int[] edges;
+	private final byte[] edgeSide;
+
+	/** Receivers of each pipe, from sinkStart[n] to sinkStart[n + 1] - 1. */
+	private final int[] sinkStart;
+	private final byte[] sinkSide;
+	private final double[] sinkDemand;
+
+	/** Pipes in order of distance to their source, orderSize first ones only. */
+	private final int[] order;
+	private final int[] parent;
+	private final byte[] parentSide;
+	private final byte[] requestSide;
+	private int orderSize;
+
+	private final double[] efficiency;
+	private final double[] demand;
+	private final double[] need;
+	private final double[] ask;
+	private final double[] received;
+	private final double[] spent;
+	private final double[] flow;
+	private final double[] input;
+
+	private boolean valid = true;
+	private long lastUpdate = -1;
+
+	private PowerNetwork(World world, ArrayList<PipeTransportPower> members) {
+		int size = members.size();
+
+		this.world = world;
+		pipes = members.toArray(new PipeTransportPower[size]);
+		source = new boolean[size];
+		pool = new double[size];
+		edgeStart = new int[size + 1];
+		sinkStart = new int[size + 1];
+		order = new int[size];
+		parent = new int[size];
+		parentSide = new byte[size];
+		requestSide = new byte[size];
+		efficiency = new double[size];
+		demand = new double[size];
+		need = new double[size];
+		ask = new double[size];
+		received = new double[size];
+		spent = new double[size];
+		flow = new double[size * 6];
+		input = new double[size * 6];
+
+		Map<PipeTransportPower, Integer> index = new IdentityHashMap<PipeTransportPower, Integer>();
+
+		for (int i = 0; i < size; i++) {
+			index.put(pipes[i], i);
+		}
+
+		TIntArrayList edgeList = new TIntArrayList();
+		TIntArrayList edgeSideList = new TIntArrayList();
+		TIntArrayList sinkList = new TIntArrayList();
+
+		for (int i = 0; i < size; i++) {
+			PipeTransportPower pipe = pipes[i];
+			TileGenericPipe tile = pipe.container;
+
+			source[i] = tile.pipe instanceof PipePowerWood;
+			edgeStart[i] = edgeList.size();
+			sinkStart[i] = sinkList.size();
+
+			for (ForgeDirection side : ForgeDirection.VALID_DIRECTIONS) {
+				if (!tile.isPipeConnected(side)) {
+					continue;
+				}
+
+				PipeTransportPower other = getMember(tile, side);
+
+				if (other != null) {
+					Integer otherIndex = index.get(other);
+
+					if (otherIndex != null && pipe.outputOpen(side) && other.inputOpen(side.getOpposite())) {
+						edgeList.add(otherIndex);
+						edgeSideList.add(side.ordinal());
+					}
+				} else if (!source[i] && !(tile.getTile(side) instanceof TileGenericPipe)) {
+					// Wooden pipes only connect to what powers them.
+					sinkList.add(side.ordinal());
+				}
+			}
+
+			// Energy buffered by the pipe before it joined still goes out.
+			pool[i] = pipe.joinNetwork(this, i);
+		}
+
+		edgeStart[size] = edgeList.size();
+		sinkStart[size] = sinkList.size();
+		edges = edgeList.toArray();
+		edgeSide = new byte[edges.length];
+
+		for (int e = 0; e < edges.length; e++) {
+			edgeSide[e] = (byte) edgeSideList.get(e);
+		}
+
+		sinkSide = new byte[sinkList.size()];
+		sinkDemand = new double[sinkList.size()];
+
+		for (int s = 0; s < sinkSide.length; s++) {
+			sinkSide[s] = (byte) sinkList.get(s);
+		}
+
+		computeTrees();
+	}
+
+	/**
+	 * Builds the network the given pipe belongs to, made of all the power
+	 * pipes connected to it.
+	 */
+	public static PowerNetwork build(TileGenericPipe start) {
+		PipeTransportPower first = (PipeTransportPower) start.pipe.transport;
+		ArrayList<PipeTransportPower> members = new ArrayList<PipeTransportPower>();
+		Map<PipeTransportPower, Boolean> visited = new IdentityHashMap<PipeTransportPower, Boolean>();
+
+		members.add(first);
+		visited.put(first, Boolean.TRUE);
+
+		for (int i = 0; i < members.size(); i++) {
+			TileGenericPipe tile = members.get(i).container;
+
+			for (ForgeDirection side : ForgeDirection.VALID_DIRECTIONS) {
+				PipeTransportPower other = getMember(tile, side);
+
+				if (other == null || visited.containsKey(other)) {
+					continue;
+				}
+
+				PowerNetwork otherNetwork = other.getNetwork();
+
+				if (otherNetwork != null) {
+					// Merged into this one.
+					otherNetwork.invalidate();
+				}
+
+				members.add(other);
+				visited.put(other, Boolean.TRUE);
+			}
+		}
+
+		return new PowerNetwork(start.getWorldObj(), members);
+	}
+
+	private static PipeTransportPower getMember(TileGenericPipe tile, ForgeDirection side) {
+		if (!tile.isPipeConnected(side)) {
+			return null;
+		}
+
+		TileEntity other = tile.getTile(side);
+
+		if (!(other instanceof TileGenericPipe)) {
+			return null;
+		}
+
+		TileGenericPipe otherTile = (TileGenericPipe) other;
+
+		if (!BlockGenericPipe.isValid(otherTile.pipe) || !(otherTile.pipe.transport instanceof PipeTransportPower)
+				|| !otherTile.isPipeConnected(side.getOpposite())) {
+			return null;
+		}
+
+		return (PipeTransportPower) otherTile.pipe.transport;
+	}
+
+	public boolean isValid() {
+		return valid;
+	}
+
+	public int size() {
+		return pipes.length;
+	}
+
+	/**
+	 * Links every pipe to the pipe feeding it, the one next to it on the
+	 * way to the closest source.
+	 */
+	private void computeTrees() {
+		orderSize = 0;
+
+		for (int i = 0; i < pipes.length; i++) {
+			parent[i] = NONE;
+			requestSide[i] = -1;
+
+			if (source[i]) {
+				order[orderSize++] = i;
+			}
+		}
+
+		int sources = orderSize;
+
+		for (int k = 0; k < orderSize; k++) {
+			int node = order[k];
+
+			for (int e = edgeStart[node]; e < edgeStart[node + 1]; e++) {
+				int target = edges[e];
+
+				if (parent[target] == NONE && !source[target]) {
+					parent[target] = node;
+					parentSide[target] = (byte) ForgeDirection.getOrientation(edgeSide[e]).getOpposite().ordinal();
+					order[orderSize++] = target;
+
+					if (k < sources && requestSide[node] == -1) {
+						requestSide[node] = edgeSide[e];
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Moves the energy of the network. Called by every pipe of the network
+	 * on each of its updates, only the first call of a tick does anything.
+	 */
+	public void update() {
+		long now = world.getTotalWorldTime();
+
+		if (!valid || now == lastUpdate) {
+			return;
+		}
+
+		lastUpdate = now;
+
+		Arrays.fill(demand, 0);
+		Arrays.fill(spent, 0);
+		System.arraycopy(input, 0, flow, 0, flow.length);
+		Arrays.fill(input, 0);
+
+		for (int i = 0; i < pipes.length; i++) {
+			PipeTransportPower pipe = pipes[i];
+			efficiency[i] = BuildCraftTransport.usePipeLoss ? 1.0 - pipe.powerResistance : 1.0;
+
+			for (int s = sinkStart[i]; s < sinkStart[i + 1]; s++) {
+				sinkDemand[s] = pipe.probeDemand(ForgeDirection.getOrientation(sinkSide[s]));
+				demand[i] += sinkDemand[s];
+			}
+		}
+
+		// Sum up the demand of each tree, from the leaves to the sources.
+		for (int k = orderSize - 1; k >= 0; k--) {
+			int node = order[k];
+
+			need[node] = Math.min(demand[node], pipes[node].maxPower);
+
+			if (parent[node] != NONE) {
+				// Energy left in the pipe from earlier ticks goes out first.
+				ask[node] = efficiency[node] > 0 ? Math.max(0, need[node] - pool[node]) : 0;
+
+				if (ask[node] > 0) {
+					demand[parent[node]] += ask[node] / efficiency[node];
+				}
+			}
+		}
+
+		// Split what the sources handed over back down the trees.
+		for (int k = 0; k < orderSize; k++) {
+			int node = order[k];
+
+			if (parent[node] == NONE) {
+				double draw = efficiency[node] > 0 ? need[node] / efficiency[node] : 0;
+				double used = Math.min(pool[node], draw);
+
+				pool[node] -= used;
+				received[node] = used * efficiency[node];
+
+				if (draw > 0 && requestSide[node] != -1) {
+					pipes[node].requestEnergy(ForgeDirection.getOrientation(requestSide[node]), (int) Math.ceil(draw));
+				}
+			} else {
+				int up = parent[node];
+				double share = demand[up] > 0 ? Math.min(1, received[up] / demand[up]) : 0;
+				double fromParent = ask[node] * share;
+
+				if (fromParent > 0) {
+					spent[up] += fromParent / efficiency[node];
+				}
+
+				received[node] = fromParent + pool[node];
+				pool[node] = 0;
+				flow[up * 6 + ForgeDirection.getOrientation(parentSide[node]).getOpposite().ordinal()] += fromParent;
+				flow[node * 6 + parentSide[node]] += fromParent;
+			}
+
+			if (received[node] > 0 && sinkStart[node] != sinkStart[node + 1]) {
+				spent[node] += deliver(node, demand[node] > 0 ? Math.min(1, received[node] / demand[node]) : 0);
+			}
+		}
+
+		// What wasn't taken stays in the pipe, fractions of RF included.
+		// Sources get back what they took before the loss was applied.
+		for (int k = 0; k < orderSize; k++) {
+			int node = order[k];
+			double left = Math.max(0, received[node] - spent[node]);
+
+			if (parent[node] == NONE && efficiency[node] > 0) {
+				left /= efficiency[node];
+			}
+
+			pool[node] += left;
+		}
+
+		for (int i = 0; i < pipes.length; i++) {
+			pipes[i].updateFromNetwork(flow, i * 6, demand[i] > 0);
+		}
+	}
+
+	/**
+	 * Hands the given share of their demand to the receivers of a pipe.
+	 *
+	 * @return the energy they accepted
+	 */
+	private int deliver(int node, double share) {
+		PipeTransportPower pipe = pipes[node];
+		int delivered = 0;
+
+		for (int s = sinkStart[node]; s < sinkStart[node + 1]; s++) {
+			int amount = (int) (sinkDemand[s] * share);
+
+			if (amount <= 0) {
+				continue;
+			}
+
+			ForgeDirection side = ForgeDirection.getOrientation(sinkSide[s]);
+			IEnergyReceiver receiver = pipe.getReceiver(side);
+			int accepted = 0;
+
+			if (receiver != null) {
+				accepted = receiver.receiveEnergy(side.getOpposite(), amount, false);
+			}
+
+			if (accepted > 0) {
+				pipe.resetProbe(side.ordinal());
+			}
+
+			pipe.dbgEnergyOutput[side.ordinal()] += accepted;
+			flow[node * 6 + side.ordinal()] += accepted;
+			delivered += accepted;
+		}
+
+		return delivered;
+	}
+
+	/**
+	 * Hands energy over to the given pipe of the network, which has to be a
+	 * source. Only as much as the source was asked for is accepted, it will
+	 * be sent out on the next update of the network.
+	 *
+	 * @return the energy accepted
+	 */
+	public double receiveEnergy(int node, ForgeDirection from, double amount) {
+		if (!valid || !source[node]) {
+			return 0;
+		}
+
+		double accepted = Math.max(0, Math.min(amount, pipes[node].maxPower - pool[node]));
+
+		pool[node] += accepted;
+		input[node * 6 + from.ordinal()] += accepted;
+
+		return accepted;
+	}
+
+	/**
+	 * Breaks the network up. Each pipe gets back the energy left in its
+	 * pool, and builds a new network on its next update.
+	 */
+	public void invalidate() {
+		if (!valid) {
+			return;
+		}
+
+		valid = false;
+
+		for (int i = 0; i < pipes.length; i++) {
+			pipes[i].leaveNetwork(pool[i]);
+			pool[i] = 0;
+		}
+	}
+}
@@ -82,10 +82,15 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 	protected boolean sendClientUpdate = false;
 	protected boolean blockNeighborChange = false;
 	protected int blockNeighborChangedSides = 0;
+	/** Sides changed by a block update, as opposed to a markDirty call. */
+	protected int blockUpdatedSides = 0;
 	protected boolean refreshRenderState = false;
 	protected boolean pipeBound = false;
 	protected boolean resyncGateExpansions = false;
 	protected boolean attachPluggables = false;
+	protected boolean sleeping = false;
+	protected boolean sleepingWithGates = false;
+	protected long wakeUpTime = Long.MAX_VALUE;
 	protected SideProperties sideProperties = new SideProperties();
 
 	private TileBuffer[] tileBuffer;
@@ -311,11 +316,13 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 
 		sideProperties.readFromNBT(nbt);
 		attachPluggables = true;
+		wakeUp();
 	}
 
 	@Override
 	public void invalidate() {
 		initialized = false;
+		TileBuffer.release(tileBuffer);
 		tileBuffer = null;
 
 		if (pipe != null) {
@@ -331,6 +338,8 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 	public void validate() {
 		super.validate();
 		initialized = false;
+		sleeping = false;
+		TileBuffer.release(tileBuffer);
 		tileBuffer = null;
 		bindPipe();
 
@@ -346,12 +355,22 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 		scheduleRenderUpdate();
 		sendUpdateToClient();
 		if (pipe != null) {
+			// Wire connections may have changed on both ends.
+			pipe.updateSignalState();
 			BlockGenericPipe.updateNeighbourSignalState(pipe);
 		}
 	}
 
 	@Override
 	public void updateEntity() {
+		if (sleeping && BuildCraftTransport.pipeSleep && worldObj.getTotalWorldTime() < wakeUpTime
+				&& (!sleepingWithGates || BuildCraftTransport.gateScheduling)) {
+			return;
+		}
+
+		sleeping = false;
+		wakeUpTime = Long.MAX_VALUE;
+
 		if (!worldObj.isRemote) {
 			if (deletePipe) {
 				worldObj.setBlockToAir(xCoord, yCoord, zCoord);
@@ -403,11 +422,21 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 			for (int i = 0; i < 6; i++) {
 				if ((blockNeighborChangedSides & (1 << i)) != 0) {
 					blockNeighborChangedSides ^= 1 << i;
-					computeConnection(ForgeDirection.getOrientation(i));
+					ForgeDirection side = ForgeDirection.getOrientation(i);
+					boolean wasConnected = pipeConnectionsBuffer[i];
+					computeConnection(side);
+					// Only the sides which changed, so an inventory marked dirty
+					// doesn't flush what the transport knows of the other sides.
+					pipe.transport.onNeighborChange(side);
+
+					if ((blockUpdatedSides & (1 << i)) != 0 || wasConnected != pipeConnectionsBuffer[i]) {
+						pipe.transport.onNeighborBlockChange(side);
+					}
 				}
 			}
 			pipe.onNeighborBlockChange(0);
 			blockNeighborChange = false;
+			blockUpdatedSides = 0;
 			refreshRenderState = true;
 		}
 
@@ -432,6 +461,49 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 				}
 			}
 		}
+
+		sleeping = BuildCraftTransport.pipeSleep && canSleep();
+		// Gates only let their pipe sleep while they schedule their updates.
+		sleepingWithGates = sleeping && pipe.hasGate();
+	}
+
+	/**
+	 * Returns true if nothing in the pipe needs to be updated until it's
+	 * woken up again.
+	 */
+	private boolean canSleep() {
+		if (deletePipe || blockNeighborChange || refreshRenderState || sendClientUpdate || attachPluggables) {
+			return false;
+		}
+
+		for (PipePluggable pluggable : sideProperties.pluggables) {
+			if (pluggable != null && pluggable.requiresUpdates()) {
+				return false;
+			}
+		}
+
+		return pipe.isIdle();
+	}
+
+	/**
+	 * Brings a sleeping pipe back to ticking. Anything handing work to a
+	 * pipe has to call this, pipes only fall asleep when idle.
+	 */
+	public void wakeUp() {
+		sleeping = false;
+	}
+
+	/**
+	 * Makes sure the pipe ticks again after the given number of ticks if it
+	 * falls asleep at the end of the current one. Meant for pipes waiting on
+	 * things that don't wake them up, like tanks of other mods being drained.
+	 */
+	public void scheduleWakeUp(int ticks) {
+		wakeUpTime = Math.min(wakeUpTime, worldObj.getTotalWorldTime() + ticks);
+	}
+
+	public boolean isSleeping() {
+		return sleeping;
 	}
 
 	public void initializeFromItemMetadata(int i) {
@@ -486,7 +558,7 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 				renderState.wireMatrix.setWireConnected(color, direction, pipe.isWireConnectedTo(this.getTile(direction), color, direction));
 			}
 
-			boolean lit = pipe.signalStrength[color.ordinal()] > 0;
+			boolean lit = pipe.isWireActive(color);
 
 			switch (color) {
 				case RED:
@@ -595,13 +667,26 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 	}
 
 	public void scheduleNeighborChange() {
+		wakeUp();
 		blockNeighborChange = true;
 		blockNeighborChangedSides = 0x3F;
+		blockUpdatedSides = 0x3F;
+		TileBuffer.markStale(tileBuffer);
 	}
 
 	public void scheduleNeighborChange(ForgeDirection direction) {
+		if (direction == ForgeDirection.UNKNOWN) {
+			scheduleNeighborChange();
+			return;
+		}
+
+		wakeUp();
 		blockNeighborChange = true;
-		blockNeighborChangedSides |= direction == ForgeDirection.UNKNOWN ? 0x3F : (1 << direction.ordinal());
+		blockNeighborChangedSides |= 1 << direction.ordinal();
+
+		if (tileBuffer != null) {
+			tileBuffer[direction.ordinal()].markStale();
+		}
 	}
 
 	@Override
@@ -692,6 +777,7 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 	}
 
 	public void sendUpdateToClient() {
+		wakeUp();
 		sendClientUpdate = true;
 	}
 
@@ -860,6 +946,9 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 		if (pipe != null) {
 			pipe.onChunkUnload();
 		}
+
+		TileBuffer.release(tileBuffer);
+		tileBuffer = null;
 	}
 
 	/**
@@ -916,6 +1005,7 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 	}
 
 	public void scheduleRenderUpdate() {
+		wakeUp();
 		refreshRenderState = true;
 	}
 
@@ -955,6 +1045,8 @@ public class TileGenericPipe extends TileEntity implements IFluidHandler,
 		}
 
 		sideProperties.pluggables[direction.ordinal()] = pluggable;
+		wakeUp();
+
 		if (pluggable != null) {
 			pipe.eventBus.registerHandler(pluggable);
 			pluggable.onAttachedPipe(this, direction);
@@ -8,22 +8,46 @@
  */
 package buildcraft.transport;
 
+import java.util.AbstractSet;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.Set;
+import java.util.NoSuchElementException;
 
-import com.google.common.collect.ForwardingSet;
+/**
+ * Ordered, array-backed storage for the items traveling in a pipe.
+ *
+ * Items added while the transport is iterating are appended after the live
+ * region and only become visible on flush(); removals made while iterating
+ * are flagged and compacted away on flush(), keeping insertion order. Live
+ * items can be walked with size() and get(int) without allocating.
+ *
+ * Each item remembers the set which last added it and its slot there, so
+ * looking an item up doesn't search the set. An item passed to another
+ * pipe while still here belongs to the other set, this one only drops it
+ * by slot on flush().
+ */
+public class TravelerSet extends AbstractSet<TravelingItem> {
 
-public class TravelerSet extends ForwardingSet<TravelingItem> {
+	private static final int INITIAL_CAPACITY = 8;
 
 	public boolean iterating;
 
-	private final Set<TravelingItem> items = new HashSet<TravelingItem>();
-	private final Set<TravelingItem> toLoad = new HashSet<TravelingItem>();
-	private final Set<TravelingItem> toAdd = new HashSet<TravelingItem>();
-	private final Set<TravelingItem> toRemove = new HashSet<TravelingItem>();
+	private TravelingItem[] items = new TravelingItem[INITIAL_CAPACITY];
+	private boolean[] removing = new boolean[INITIAL_CAPACITY];
+	/** Number of items counted by each slot, or -1 if the slot is not counted. */
+	private int[] weights = new int[INITIAL_CAPACITY];
+	private int size = 0;
+	private int pending = 0;
+	private int removeCount = 0;
+
+	private TravelingItem[] toLoad = new TravelingItem[INITIAL_CAPACITY];
+	private int loadCount = 0;
 	private int delay = 0;
+
+	private int numberOfStacks = 0;
+	private int numberOfItems = 0;
+
 	private final PipeTransportItems transport;
 
 	public TravelerSet(PipeTransportItems transport) {
@@ -31,49 +55,141 @@ public class TravelerSet extends ForwardingSet<TravelingItem> {
 	}
 
 	@Override
-	protected Set<TravelingItem> delegate() {
-		return items;
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns true if the set holds no item, counting the items waiting to
+	 * be added or loaded.
+	 */
+	public boolean isIdle() {
+		return size == 0 && pending == 0 && loadCount == 0;
+	}
+
+	public TravelingItem get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return items[index];
+	}
+
+	@Override
+	public boolean contains(Object object) {
+		int index = indexOf(object);
+		return index >= 0 && index < size;
 	}
 
 	@Override
 	public boolean add(TravelingItem item) {
+		if (!iterating) {
+			item.setContainer(transport.container);
+		}
+
+		if (indexOf(item) >= 0) {
+			return false;
+		}
+
+		if (!iterating) {
+			// Keep pending items ahead of this one, in insertion order.
+			addScheduledItems();
+		}
+
+		ensureCapacity(size + pending + 1);
+		items[size + pending] = item;
+		removing[size + pending] = false;
+		item.travelerSet = this;
+		item.travelerSlot = size + pending;
+
 		if (iterating) {
-			return toAdd.add(item);
+			pending++;
+		} else {
+			weigh(size);
+			size++;
 		}
-		item.setContainer(transport.container);
-		items.add(item);
 		return true;
 	}
 
 	@Override
 	public boolean addAll(Collection<? extends TravelingItem> collection) {
-		if (iterating) {
-			return toAdd.addAll(collection);
+		boolean changed = false;
+		for (TravelingItem item : collection) {
+			changed |= add(item);
 		}
-		return standardAddAll(collection);
+		return changed;
 	}
 
 	@Override
 	public boolean remove(Object object) {
 		if (iterating) {
-			return toRemove.add((TravelingItem) object);
+			return object instanceof TravelingItem && scheduleRemoval((TravelingItem) object);
+		}
+
+		int index = indexOf(object);
+		if (index < 0) {
+			return false;
+		}
+
+		removeAt(index);
+		return true;
+	}
+
+	private void removeAt(int index) {
+		if (removing[index]) {
+			removeCount--;
+		}
+		release(index);
+		if (index < size) {
+			unweigh(index);
+			size--;
+		} else {
+			pending--;
+		}
+
+		int end = size + pending;
+		System.arraycopy(items, index + 1, items, index, end - index);
+		System.arraycopy(removing, index + 1, removing, index, end - index);
+		System.arraycopy(weights, index + 1, weights, index, end - index);
+		items[end] = null;
+		removing[end] = false;
+
+		for (int i = index; i < end; i++) {
+			moveSlot(i);
 		}
-		return delegate().remove(object);
 	}
 
 	@Override
 	public boolean removeAll(Collection<?> collection) {
-		throw new UnsupportedOperationException();
+		return removeMatching(collection, true);
 	}
 
 	@Override
 	public boolean retainAll(Collection<?> collection) {
-		throw new UnsupportedOperationException();
+		return removeMatching(collection, false);
+	}
+
+	private boolean removeMatching(Collection<?> collection, boolean contained) {
+		boolean changed = false;
+		for (int i = 0; i < size; i++) {
+			if (!removing[i] && collection.contains(items[i]) == contained) {
+				removing[i] = true;
+				removeCount++;
+				changed = true;
+			}
+		}
+
+		if (changed && !iterating) {
+			removeScheduledItems();
+		}
+		return changed;
 	}
 
 	void scheduleLoad(TravelingItem item) {
 		delay = 10;
-		toLoad.add(item);
+		if (loadCount == toLoad.length) {
+			toLoad = Arrays.copyOf(toLoad, loadCount * 2);
+		}
+		toLoad[loadCount++] = item;
 	}
 
 	private void loadScheduledItems() {
@@ -81,26 +197,86 @@ public class TravelerSet extends ForwardingSet<TravelingItem> {
 			delay--;
 			return;
 		}
-		addAll(toLoad);
-		toLoad.clear();
+		for (int i = 0; i < loadCount; i++) {
+			add(toLoad[i]);
+			toLoad[i] = null;
+		}
+		loadCount = 0;
 	}
 
 	private void addScheduledItems() {
-		addAll(toAdd);
-		toAdd.clear();
+		int end = size + pending;
+		for (int i = size; i < end; i++) {
+			items[i].setContainer(transport.container);
+			weigh(i);
+		}
+		size = end;
+		pending = 0;
 	}
 
 	public boolean scheduleRemoval(TravelingItem item) {
-		return toRemove.add(item);
+		int index = indexOf(item);
+		return index >= 0 && scheduleRemoval(index);
+	}
+
+	/**
+	 * Schedules the removal of the item at the given index, which is still
+	 * in this set even if another pipe took the item over.
+	 */
+	boolean scheduleRemoval(int index) {
+		if (removing[index]) {
+			return false;
+		}
+		removing[index] = true;
+		removeCount++;
+		return true;
 	}
 
 	public boolean unscheduleRemoval(TravelingItem item) {
-		return toRemove.remove(item);
+		int index = indexOf(item);
+		if (index < 0 || !removing[index]) {
+			return false;
+		}
+		removing[index] = false;
+		removeCount--;
+		return true;
 	}
 
 	void removeScheduledItems() {
-		items.removeAll(toRemove);
-		toRemove.clear();
+		if (removeCount == 0) {
+			return;
+		}
+
+		int end = size + pending;
+		int liveSize = size;
+		int write = 0;
+
+		for (int read = 0; read < end; read++) {
+			if (removing[read]) {
+				if (read < size) {
+					unweigh(read);
+					liveSize--;
+				}
+				release(read);
+				continue;
+			}
+			if (write != read) {
+				items[write] = items[read];
+				weights[write] = weights[read];
+				removing[write] = false;
+				moveSlot(read, write);
+			}
+			write++;
+		}
+
+		for (int i = write; i < end; i++) {
+			items[i] = null;
+			removing[i] = false;
+		}
+
+		pending = write - liveSize;
+		size = liveSize;
+		removeCount = 0;
 	}
 
 	void flush() {
@@ -109,17 +285,136 @@ public class TravelerSet extends ForwardingSet<TravelingItem> {
 		removeScheduledItems();
 	}
 
+	/**
+	 * Re-reads the stack size of the live item at the given index. Must be
+	 * called after changing the size of a stack already in the set, so that
+	 * the stack and item counters stay accurate.
+	 */
+	void refreshWeight(int index) {
+		unweigh(index);
+		weigh(index);
+	}
+
+	public int getNumberOfStacks() {
+		return numberOfStacks;
+	}
+
+	public int getNumberOfItems() {
+		return numberOfItems;
+	}
+
 	@Override
 	public Iterator<TravelingItem> iterator() {
-		return items.iterator();
+		return new Iterator<TravelingItem>() {
+			private int index = 0;
+			private int last = -1;
+
+			@Override
+			public boolean hasNext() {
+				return index < size;
+			}
+
+			@Override
+			public TravelingItem next() {
+				if (index >= size) {
+					throw new NoSuchElementException();
+				}
+				last = index;
+				return items[index++];
+			}
+
+			@Override
+			public void remove() {
+				if (last < 0) {
+					throw new IllegalStateException();
+				}
+				if (iterating) {
+					scheduleRemoval(last);
+				} else {
+					removeAt(last);
+					index--;
+				}
+				last = -1;
+			}
+		};
 	}
 
 	@Override
 	public void clear() {
-		if (iterating) {
-			toRemove.addAll(this);
-		} else {
-			items.clear();
+		for (int i = 0; i < size; i++) {
+			if (!removing[i]) {
+				removing[i] = true;
+				removeCount++;
+			}
+		}
+
+		if (!iterating) {
+			removeScheduledItems();
+		}
+	}
+
+	private int indexOf(Object object) {
+		if (!(object instanceof TravelingItem)) {
+			return -1;
+		}
+		TravelingItem item = (TravelingItem) object;
+		int index = item.travelerSlot;
+		if (item.travelerSet != this || index < 0 || index >= size + pending || items[index] != item) {
+			return -1;
+		}
+		return index;
+	}
+
+	private void moveSlot(int index) {
+		moveSlot(index + 1, index);
+	}
+
+	/**
+	 * Follows the item moved from slot "from" to slot "to", unless another
+	 * set or another slot of this set holds it now.
+	 */
+	private void moveSlot(int from, int to) {
+		TravelingItem item = items[to];
+		if (item.travelerSet == this && item.travelerSlot == from) {
+			item.travelerSlot = to;
+		}
+	}
+
+	private void release(int index) {
+		TravelingItem item = items[index];
+		if (item.travelerSet == this && item.travelerSlot == index) {
+			item.travelerSet = null;
+			item.travelerSlot = -1;
+		}
+		transport.onTravelerRemoved(item);
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > items.length) {
+			int newLength = Math.max(capacity, items.length * 2);
+			items = Arrays.copyOf(items, newLength);
+			removing = Arrays.copyOf(removing, newLength);
+			weights = Arrays.copyOf(weights, newLength);
+		}
+	}
+
+	private void weigh(int index) {
+		TravelingItem item = items[index];
+		// Stacks emptied by grouping are about to be dropped, don't count them.
+		if (item.ignoreWeight() || item.getItemStack() == null || item.getItemStack().stackSize <= 0) {
+			weights[index] = -1;
+			return;
+		}
+		weights[index] = item.getItemStack().stackSize;
+		numberOfStacks++;
+		numberOfItems += weights[index];
+	}
+
+	private void unweigh(int index) {
+		if (weights[index] >= 0) {
+			numberOfStacks--;
+			numberOfItems -= weights[index];
 		}
+		weights[index] = -1;
 	}
 }
@@ -9,7 +9,7 @@
 package buildcraft.transport;
 
 import java.util.EnumSet;
-import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.common.collect.MapMaker;
 
@@ -30,8 +30,16 @@ import buildcraft.core.lib.inventory.StackHelper;
 
 public class TravelingItem {
 
-	public static final TravelingItemCache serverCache = new TravelingItemCache();
-	public static final TravelingItemCache clientCache = new TravelingItemCache();
+	/**
+	 * Server items are only looked up to answer stack requests, so they may
+	 * be collected as soon as no pipe holds them anymore.
+	 */
+	public static final TravelingItemCache serverCache = new TravelingItemCache(new MapMaker().weakValues().<Integer, TravelingItem>makeMap());
+	/**
+	 * Client items are released explicitly by the pipe holding them, see
+	 * {@link PipeTransportItems}.
+	 */
+	public static final TravelingItemCache clientCache = new TravelingItemCache(new MapMaker().<Integer, TravelingItem>makeMap());
 	public static final InsertionHandler DEFAULT_INSERTION_HANDLER = new InsertionHandler();
 	private static int maxId = 0;
 
@@ -47,6 +55,21 @@ public class TravelingItem {
 	public int displayList;
 	public boolean hasDisplayList;
 
+	/**
+	 * Pipe tick on which a fast-forwarded item reaches its next checkpoint,
+	 * or -1 while the item is moved every tick. See PipeTransportItems.
+	 */
+	long fastForwardArrival = -1;
+	/** Pipe tick from which the item's moves have been skipped. */
+	long fastForwardStart;
+
+	/**
+	 * Set which last added the item and its slot in it, so the set finds
+	 * the item without searching. See TravelerSet.
+	 */
+	TravelerSet travelerSet;
+	int travelerSlot = -1;
+
 	protected float speed = 0.01F;
 
 	protected ItemStack itemStack;
@@ -66,7 +89,8 @@ public class TravelingItem {
 	}
 
 	public static TravelingItem make() {
-		return make(maxId < Short.MAX_VALUE ? ++maxId : (maxId = Short.MIN_VALUE));
+		maxId = maxId < Integer.MAX_VALUE ? maxId + 1 : 1;
+		return make(maxId);
 	}
 
 	public static TravelingItem make(double x, double y, double z, ItemStack stack) {
@@ -272,6 +296,21 @@ public class TravelingItem {
 		return StackHelper.canStacksMerge(itemStack, otherItem.itemStack);
 	}
 
+	/**
+	 * Returns a hash shared by all items that may be grouped together, built
+	 * from the stack's item, damage and NBT and the item's color, direction
+	 * and output.
+	 */
+	public int getGroupingHash() {
+		int hash = System.identityHashCode(itemStack.getItem());
+		hash = 31 * hash + itemStack.getItemDamage();
+		hash = 31 * hash + (itemStack.hasTagCompound() ? itemStack.getTagCompound().hashCode() : 0);
+		hash = 31 * hash + (color != null ? color.ordinal() + 1 : 0);
+		hash = 31 * hash + output.ordinal();
+		hash = 31 * hash + (toCenter ? 1 : 0);
+		return hash ^ (hash >>> 16);
+	}
+
 	public boolean tryMergeInto(TravelingItem otherItem) {
 		if (!canBeGroupedWith(otherItem)) {
 			return false;
@@ -322,7 +361,11 @@ public class TravelingItem {
 
 	public static class TravelingItemCache {
 
-		private final Map<Integer, TravelingItem> itemCache = new MapMaker().weakValues().makeMap();
+		private final ConcurrentMap<Integer, TravelingItem> itemCache;
+
+		public TravelingItemCache(ConcurrentMap<Integer, TravelingItem> itemCache) {
+			this.itemCache = itemCache;
+		}
 
 		public void cache(TravelingItem item) {
 			itemCache.put(item.id, item);
@@ -331,5 +374,13 @@ public class TravelingItem {
 		public TravelingItem get(int id) {
 			return itemCache.get(id);
 		}
+
+		/**
+		 * Forgets the given item, unless its id has since been taken by
+		 * another item.
+		 */
+		public void release(TravelingItem item) {
+			itemCache.remove(item.id, item);
+		}
 	}
 }
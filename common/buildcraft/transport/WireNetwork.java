@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.transport;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import gnu.trove.list.array.TByteArrayList;
+import gnu.trove.list.array.TIntArrayList;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraftforge.common.util.ForgeDirection;
+
+import buildcraft.api.transport.IPipeTile;
+import buildcraft.api.transport.PipeWire;
+
+/**
+ * The pipes connected by the wire of one color, found once and kept until
+ * one of them changes its wire or its connections.
+ *
+ * Gates broadcasting on the wire are the emitters of the network. A signal
+ * reaches pipes up to 254 pipes away from its emitter. A network of up to
+ * 255 pipes can't be longer than that, so all of its pipes are on as soon
+ * as one emitter is, which is known from the number of active emitters.
+ * Only larger networks keep the strength of each pipe, see
+ * {@link WirePropagator}.
+ *
+ * Each pipe caches whether its wire is on and its strength, the network
+ * updates them.
+ */
+public final class WireNetwork {
+	final PipeWire wire;
+	final int color;
+	final Pipe<?>[] pipes;
+
+	/** Pipes next to each pipe, from edges[edgeStart[n]] to edges[edgeStart[n + 1] - 1]. */
+	final int[] edgeStart;
+	final int[] edges;
+
+	/** Strength of the signal on each pipe, null for networks small enough not to need it. */
+	final int[] strength;
+
+	/** Sides each pipe is connected on, to tell when they changed. */
+	private final byte[] connections;
+	private final boolean[] emitting;
+	private int activeEmitters;
+	private boolean valid = true;
+
+	private WireNetwork(PipeWire wire, ArrayList<Pipe<?>> members, TIntArrayList edgeStartList, TIntArrayList edgeList,
+			byte[] connections) {
+		int size = members.size();
+
+		this.wire = wire;
+		this.color = wire.ordinal();
+		this.pipes = members.toArray(new Pipe<?>[size]);
+		this.edgeStart = edgeStartList.toArray();
+		this.edges = edgeList.toArray();
+		this.connections = connections;
+		this.emitting = new boolean[size];
+		this.strength = size > WirePropagator.MAX_STRENGTH ? new int[size] : null;
+	}
+
+	/**
+	 * Builds the network of the given color the given pipe belongs to. The
+	 * networks of the pipes it reaches are merged into it.
+	 */
+	public static WireNetwork build(Pipe<?> start, PipeWire wire) {
+		int color = wire.ordinal();
+		ArrayList<Pipe<?>> members = new ArrayList<Pipe<?>>();
+		Map<Pipe<?>, Integer> index = new IdentityHashMap<Pipe<?>, Integer>();
+		TIntArrayList edgeStartList = new TIntArrayList();
+		TIntArrayList edgeList = new TIntArrayList();
+		TByteArrayList connectionList = new TByteArrayList();
+
+		members.add(start);
+		index.put(start, 0);
+		absorb(start, color);
+
+		for (int i = 0; i < members.size(); i++) {
+			Pipe<?> pipe = members.get(i);
+			int mask = 0;
+
+			edgeStartList.add(edgeList.size());
+
+			for (ForgeDirection side : ForgeDirection.VALID_DIRECTIONS) {
+				Pipe<?> other = getNeighbor(pipe, wire, side);
+
+				if (other == null) {
+					continue;
+				}
+
+				Integer otherIndex = index.get(other);
+
+				if (otherIndex == null) {
+					otherIndex = members.size();
+					members.add(other);
+					index.put(other, otherIndex);
+					absorb(other, color);
+				}
+
+				edgeList.add(otherIndex);
+				mask |= 1 << side.ordinal();
+			}
+
+			connectionList.add((byte) mask);
+		}
+
+		edgeStartList.add(edgeList.size());
+
+		WireNetwork network = new WireNetwork(wire, members, edgeStartList, edgeList, connectionList.toArray());
+
+		for (int i = 0; i < network.pipes.length; i++) {
+			network.pipes[i].setWireNetwork(color, network, i);
+			network.emitting[i] = isEmitting(network.pipes[i], color);
+
+			if (network.emitting[i]) {
+				network.activeEmitters++;
+			}
+		}
+
+		if (network.strength != null) {
+			WirePropagator.spreadFromEmitters(network);
+		}
+
+		for (int i = 0; i < network.pipes.length; i++) {
+			network.refresh(i);
+		}
+
+		return network;
+	}
+
+	private static void absorb(Pipe<?> pipe, int color) {
+		WireNetwork other = pipe.getWireNetwork(color);
+
+		if (other != null) {
+			other.invalidate();
+		}
+	}
+
+	static Pipe<?> getNeighbor(Pipe<?> pipe, PipeWire wire, ForgeDirection side) {
+		TileEntity tile = pipe.container.getTile(side);
+
+		if (tile == null || tile.isInvalid() || !pipe.isWireConnectedTo(tile, wire, side)) {
+			return null;
+		}
+
+		return (Pipe<?>) ((IPipeTile) tile).getPipe();
+	}
+
+	static boolean isEmitting(Pipe<?> pipe, int color) {
+		for (Gate gate : pipe.gates) {
+			if (gate != null && gate.broadcastSignal.get(color)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	public boolean isValid() {
+		return valid;
+	}
+
+	public int size() {
+		return pipes.length;
+	}
+
+	/**
+	 * Returns true if at least one gate of the network broadcasts on it.
+	 */
+	public boolean hasActiveEmitter() {
+		return activeEmitters > 0;
+	}
+
+	/**
+	 * Returns true if the wire of the given pipe of the network is on.
+	 */
+	public boolean isActive(int node) {
+		return strength != null ? strength[node] > 0 : activeEmitters > 0;
+	}
+
+	/**
+	 * Returns true if the given pipe of the network is still connected to
+	 * the same sides as when the network was built.
+	 */
+	boolean hasSameConnections(int node) {
+		Pipe<?> pipe = pipes[node];
+		int mask = 0;
+
+		for (ForgeDirection side : ForgeDirection.VALID_DIRECTIONS) {
+			if (getNeighbor(pipe, wire, side) != null) {
+				mask |= 1 << side.ordinal();
+			}
+		}
+
+		return mask == connections[node];
+	}
+
+	/**
+	 * Called when the gates of the given pipe of the network may have
+	 * started or stopped broadcasting on it.
+	 */
+	void updateEmitter(int node) {
+		boolean emits = isEmitting(pipes[node], color);
+
+		if (emits == emitting[node]) {
+			return;
+		}
+
+		emitting[node] = emits;
+		activeEmitters += emits ? 1 : -1;
+
+		if (strength != null) {
+			WirePropagator.update(this, node);
+		} else if (activeEmitters == (emits ? 1 : 0)) {
+			// The whole network turned on or off.
+			for (int i = 0; i < pipes.length; i++) {
+				refresh(i);
+			}
+		}
+	}
+
+	boolean isEmitting(int node) {
+		return emitting[node];
+	}
+
+	/**
+	 * Returns the strength of the signal on the given pipe of the network.
+	 */
+	public int getStrength(int node) {
+		if (strength != null) {
+			return strength[node];
+		}
+
+		return activeEmitters > 0 ? WirePropagator.MAX_STRENGTH : 0;
+	}
+
+	void refresh(int node) {
+		pipes[node].signalStrength[color] = getStrength(node);
+		pipes[node].setWireActive(color, isActive(node));
+	}
+
+	/**
+	 * Breaks the network up. Its pipes build a new one on their next
+	 * update, and keep showing their wire as it was until then.
+	 */
+	public void invalidate() {
+		if (!valid) {
+			return;
+		}
+
+		valid = false;
+
+		for (Pipe<?> pipe : pipes) {
+			if (pipe.getWireNetwork(color) == this) {
+				pipe.setWireNetwork(color, null, 0);
+
+				if (pipe.container != null) {
+					pipe.container.wakeUp();
+				}
+			}
+		}
+	}
+}
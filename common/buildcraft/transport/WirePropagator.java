@@ -0,0 +1,190 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.transport;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+
+/**
+ * Computes the signal strength of pipe wires in large {@link WireNetwork}s.
+ *
+ * A gate broadcasting on a wire gives its pipe a strength of 255, and the
+ * strength drops by one on each pipe the signal goes through. When an
+ * emitter changes, the strengths which may have come through it are
+ * cleared, and the signal is spread again from the pipes around the
+ * cleared area and from the emitters in it, strongest first. Each pipe of
+ * the affected area is visited once, in the same tick.
+ *
+ * Only the pipes whose strength changed are told about it, and only those
+ * whose wire was turned on or off are redrawn.
+ */
+public final class WirePropagator {
+	public static final int MAX_STRENGTH = 255;
+
+	private final WireNetwork network;
+	private final int[] strength;
+	private final TIntIntHashMap previous = new TIntIntHashMap();
+	private final TIntArrayList[] levels = new TIntArrayList[MAX_STRENGTH + 1];
+
+	private WirePropagator(WireNetwork network) {
+		this.network = network;
+		this.strength = network.strength;
+	}
+
+	/**
+	 * Updates the signal strengths after the given pipe of the network
+	 * started or stopped emitting.
+	 */
+	public static void update(WireNetwork network, int node) {
+		new WirePropagator(network).update(node);
+	}
+
+	/**
+	 * Computes the signal strengths of a new network.
+	 */
+	public static void spreadFromEmitters(WireNetwork network) {
+		WirePropagator propagator = new WirePropagator(network);
+
+		for (int node = 0; node < network.size(); node++) {
+			if (network.isEmitting(node)) {
+				propagator.setStrength(node, MAX_STRENGTH);
+				propagator.queue(node);
+			}
+		}
+
+		propagator.spread();
+	}
+
+	private void update(int start) {
+		int current = strength[start];
+		int expected = getExpectedStrength(start);
+
+		if (expected < current) {
+			clear(start);
+		} else {
+			setStrength(start, expected);
+			queue(start);
+		}
+
+		spread();
+
+		for (int node : previous.keys()) {
+			if (previous.get(node) != strength[node]) {
+				network.refresh(node);
+			}
+		}
+	}
+
+	private int getExpectedStrength(int node) {
+		if (network.isEmitting(node)) {
+			return MAX_STRENGTH;
+		}
+
+		int expected = 0;
+
+		for (int e = network.edgeStart[node]; e < network.edgeStart[node + 1]; e++) {
+			expected = Math.max(expected, strength[network.edges[e]] - 1);
+		}
+
+		return expected;
+	}
+
+	/**
+	 * Clears the strengths which may have come through the given pipe, that
+	 * is the ones reached from it by strictly decreasing strengths. Pipes
+	 * around the cleared area and emitters in it are queued for spreading.
+	 */
+	private void clear(int start) {
+		TIntArrayList cleared = new TIntArrayList();
+		TIntArrayList clearedStrength = new TIntArrayList();
+
+		cleared.add(start);
+		clearedStrength.add(strength[start]);
+		setStrength(start, 0);
+
+		for (int i = 0; i < cleared.size(); i++) {
+			int node = cleared.get(i);
+			int nodeStrength = clearedStrength.get(i);
+
+			if (network.isEmitting(node)) {
+				setStrength(node, MAX_STRENGTH);
+				queue(node);
+			}
+
+			for (int e = network.edgeStart[node]; e < network.edgeStart[node + 1]; e++) {
+				int other = network.edges[e];
+				int otherStrength = strength[other];
+
+				if (otherStrength == 0) {
+					continue;
+				} else if (otherStrength < nodeStrength) {
+					cleared.add(other);
+					clearedStrength.add(otherStrength);
+					setStrength(other, 0);
+				} else {
+					queue(other);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Spreads the signal from the queued pipes, strongest first, so each
+	 * pipe gets its final strength the first time it's reached.
+	 */
+	private void spread() {
+		for (int level = MAX_STRENGTH; level > 1; level--) {
+			TIntArrayList nodes = levels[level];
+
+			if (nodes == null) {
+				continue;
+			}
+
+			for (int i = 0; i < nodes.size(); i++) {
+				int node = nodes.get(i);
+
+				if (strength[node] != level) {
+					// Queued again since, with a higher strength.
+					continue;
+				}
+
+				for (int e = network.edgeStart[node]; e < network.edgeStart[node + 1]; e++) {
+					int other = network.edges[e];
+
+					if (strength[other] < level - 1) {
+						setStrength(other, level - 1);
+						queue(other);
+					}
+				}
+			}
+		}
+	}
+
+	private void queue(int node) {
+		int level = strength[node];
+
+		if (level <= 1) {
+			return;
+		}
+
+		if (levels[level] == null) {
+			levels[level] = new TIntArrayList();
+		}
+
+		levels[level].add(node);
+	}
+
+	private void setStrength(int node, int value) {
+		if (!previous.containsKey(node)) {
+			previous.put(node, strength[node]);
+		}
+
+		strength[node] = value;
+	}
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.transport.command;
+
+import net.minecraft.command.ICommandSender;
+import net.minecraft.util.ChatComponentText;
+import net.minecraft.util.StatCollector;
+import net.minecraft.world.WorldServer;
+import net.minecraftforge.common.DimensionManager;
+
+import buildcraft.core.lib.commands.SubCommand;
+import buildcraft.transport.TileGenericPipe;
+import buildcraft.transport.utils.DestinationCache;
+
+public class SubCommandPipes extends SubCommand {
+	public SubCommandPipes() {
+		super("pipes");
+		setPermLevel(PermLevel.ADMIN);
+	}
+
+	@Override
+	public void processSubCommand(ICommandSender sender, String[] args) {
+		for (WorldServer world : DimensionManager.getWorlds()) {
+			int awake = 0;
+			int asleep = 0;
+
+			for (Object o : world.loadedTileEntityList) {
+				if (o instanceof TileGenericPipe && ((TileGenericPipe) o).pipe != null) {
+					if (((TileGenericPipe) o).isSleeping()) {
+						asleep++;
+					} else {
+						awake++;
+					}
+				}
+			}
+
+			sender.addChatMessage(new ChatComponentText(String.format(
+					StatCollector.translateToLocal("command.buildcraft.pipes"),
+					world.provider.dimensionId, awake, asleep)));
+		}
+
+		long lookups = DestinationCache.hits + DestinationCache.misses;
+		sender.addChatMessage(new ChatComponentText(String.format(
+				StatCollector.translateToLocal("command.buildcraft.pipes.routing"),
+				DestinationCache.hits, lookups, lookups > 0 ? DestinationCache.hits * 100 / lookups : 0)));
+	}
+}
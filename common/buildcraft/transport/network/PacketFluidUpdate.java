@@ -14,7 +14,6 @@ import io.netty.buffer.ByteBuf;
 
 import net.minecraft.tileentity.TileEntity;
 import net.minecraft.world.World;
-import net.minecraftforge.common.util.ForgeDirection;
 
 import buildcraft.core.lib.network.PacketCoordinates;
 import buildcraft.core.lib.utils.BitSetUtils;
@@ -24,8 +23,14 @@ import buildcraft.transport.PipeTransportFluids;
 import buildcraft.transport.TileGenericPipe;
 import buildcraft.transport.utils.FluidRenderData;
 
+/**
+ * Updates the fluid rendered in a pipe. Amounts are sent as render levels,
+ * see {@link FluidRenderData#getLevel}, as clients can't show anything finer.
+ * The same data is also sent as an entry of a {@link PacketPipeBatch}.
+ */
 public class PacketFluidUpdate extends PacketCoordinates {
 	public FluidRenderData renderCache = new FluidRenderData();
+	public byte[] levels = new byte[7];
 	public BitSet delta;
 
 	public PacketFluidUpdate(int xCoord, int yCoord, int zCoord) {
@@ -44,65 +49,76 @@ public class PacketFluidUpdate extends PacketCoordinates {
 	public void readData(ByteBuf data) {
 		super.readData(data);
 
-		World world = CoreProxy.proxy.getClientWorld();
-		if (!world.blockExists(posX, posY, posZ)) {
-			return;
-		}
-
-		TileEntity entity = world.getTileEntity(posX, posY, posZ);
-		if (!(entity instanceof TileGenericPipe)) {
-			return;
-		}
-
-		TileGenericPipe pipe = (TileGenericPipe) entity;
-		if (pipe.pipe == null) {
-			return;
-		}
-
-		if (!(pipe.pipe.transport instanceof PipeTransportFluids)) {
-			return;
-		}
-
-		PipeTransportFluids transLiq = (PipeTransportFluids) pipe.pipe.transport;
+		readEntry(data, CoreProxy.proxy.getClientWorld(), posX, posY, posZ);
+	}
 
-		renderCache = transLiq.renderCache;
+	@Override
+	public void writeData(ByteBuf data) {
+		super.writeData(data);
 
-		byte[] dBytes = new byte[1];
-		data.readBytes(dBytes);
-		delta = BitSetUtils.fromByteArray(dBytes);
+		writeEntry(data, BitSetUtils.toByteArray(delta, 1)[0] & 0xFF, renderCache, levels);
+	}
 
-		// System.out.printf("read %d, %d, %d = %s, %s%n", posX, posY, posZ, Arrays.toString(dBytes), delta);
+	/**
+	 * Writes an update of the given render data. Bit 0 of delta is set when
+	 * the fluid changed, bits 1 to 7 when the level of a section did.
+	 */
+	public static void writeEntry(ByteBuf data, int delta, FluidRenderData renderCache, byte[] levels) {
+		data.writeByte(delta);
 
-		if (delta.get(0)) {
-			renderCache.fluidID = data.readShort();
-			renderCache.color = renderCache.fluidID != 0 ? data.readInt() : 0xFFFFFF;
+		if ((delta & 1) != 0) {
+			data.writeShort(renderCache.fluidID);
+			if (renderCache.fluidID != 0) {
+				data.writeInt(renderCache.color);
+			}
 		}
 
-		for (ForgeDirection dir : ForgeDirection.values()) {
-			if (delta.get(dir.ordinal() + 1)) {
-				renderCache.amount[dir.ordinal()] = Math.min(transLiq.getCapacity(), data.readUnsignedByte());
+		for (int i = 0; i < 7; i++) {
+			if ((delta & (1 << (i + 1))) != 0) {
+				data.writeByte(levels[i]);
 			}
 		}
 	}
 
-	@Override
-	public void writeData(ByteBuf data) {
-		super.writeData(data);
+	/**
+	 * Reads an update written by {@link #writeEntry}, and applies it to the
+	 * pipe at the given position if there is one. The entry is consumed
+	 * either way.
+	 */
+	public static void readEntry(ByteBuf data, World world, int x, int y, int z) {
+		int delta = data.readUnsignedByte();
+		int fluidID = 0, color = 0xFFFFFF;
+
+		if ((delta & 1) != 0) {
+			fluidID = data.readShort();
+			if (fluidID != 0) {
+				color = data.readInt();
+			}
+		}
 
-		byte[] dBytes = BitSetUtils.toByteArray(delta, 1);
-		// System.out.printf("write %d, %d, %d = %s, %s%n", posX, posY, posZ, Arrays.toString(dBytes), delta);
-		data.writeBytes(dBytes);
+		PipeTransportFluids transLiq = null;
 
-		if (delta.get(0)) {
-			data.writeShort(renderCache.fluidID);
-			if (renderCache.fluidID != 0) {
-				data.writeInt(renderCache.color);
+		if (world != null && world.blockExists(x, y, z)) {
+			TileEntity entity = world.getTileEntity(x, y, z);
+
+			if (entity instanceof TileGenericPipe && ((TileGenericPipe) entity).pipe != null
+					&& ((TileGenericPipe) entity).pipe.transport instanceof PipeTransportFluids) {
+				transLiq = (PipeTransportFluids) ((TileGenericPipe) entity).pipe.transport;
 			}
 		}
 
-		for (ForgeDirection dir : ForgeDirection.values()) {
-			if (delta.get(dir.ordinal() + 1)) {
-				data.writeByte(renderCache.amount[dir.ordinal()]);
+		if (transLiq != null && (delta & 1) != 0) {
+			transLiq.renderCache.fluidID = fluidID;
+			transLiq.renderCache.color = color;
+		}
+
+		for (int i = 0; i < 7; i++) {
+			if ((delta & (1 << (i + 1))) != 0) {
+				int level = data.readUnsignedByte();
+
+				if (transLiq != null) {
+					transLiq.renderCache.amount[i] = FluidRenderData.getAmount(level, transLiq.getCapacity());
+				}
 			}
 		}
 	}
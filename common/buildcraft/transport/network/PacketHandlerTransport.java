@@ -8,6 +8,7 @@
  */
 package buildcraft.transport.network;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerContext;
 
@@ -56,6 +57,10 @@ public class PacketHandlerTransport extends PacketHandler {
 					onPipeTravelerUpdate(player, (PacketPipeTransportTraveler) packet);
 					break;
 				}
+				case PacketIds.PIPE_BATCH: {
+					onPipeBatch(player, (PacketPipeBatch) packet);
+					break;
+				}
 				case PacketIds.PIPE_ITEMSTACK: {
 					// action will have happened already at read time
 					break;
@@ -85,6 +90,43 @@ public class PacketHandlerTransport extends PacketHandler {
 		}
 	}
 
+	/**
+	 * Unpacks the entries of a pipe batch and applies each of them to its
+	 * pipe.
+	 */
+	private void onPipeBatch(EntityPlayer player, PacketPipeBatch packet) {
+		ByteBuf data = packet.getPayload();
+		int baseX = packet.chunkX << 4;
+		int baseZ = packet.chunkZ << 4;
+		PacketPipeTransportTraveler traveler = null;
+
+		for (int i = 0; i < packet.count; i++) {
+			int xz = data.readUnsignedByte();
+			int x = baseX + (xz & 15);
+			int y = data.readUnsignedByte();
+			int z = baseZ + (xz >> 4);
+
+			switch (packet.kind) {
+				case PacketPipeBatch.KIND_TRAVELER:
+					if (traveler == null) {
+						traveler = new PacketPipeTransportTraveler();
+					}
+					traveler.readEntry(data, x, y, z);
+					onPipeTravelerUpdate(player, traveler);
+					break;
+				case PacketPipeBatch.KIND_FLUID:
+					PacketFluidUpdate.readEntry(data, player.worldObj, x, y, z);
+					break;
+				case PacketPipeBatch.KIND_POWER:
+					PacketPowerUpdate.readEntry(data, player.worldObj, x, y, z);
+					break;
+				default:
+					// Entries of unknown kinds can't be skipped.
+					return;
+			}
+		}
+	}
+
 	/**
 	 * Updates items in a pipe.
 	 *
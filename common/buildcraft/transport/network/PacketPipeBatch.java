@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.transport.network;
+
+import io.netty.buffer.ByteBuf;
+
+import buildcraft.core.lib.network.Packet;
+import buildcraft.core.lib.utils.NetworkUtils;
+import buildcraft.core.network.PacketIds;
+
+/**
+ * Carries all the pipe updates of one kind that happened in a chunk during a
+ * tick. Each entry starts with the pipe's position inside the chunk (one byte
+ * for x and z, one for y), followed by data specific to the kind.
+ */
+public class PacketPipeBatch extends Packet {
+
+	public static final int KIND_TRAVELER = 0;
+	public static final int KIND_FLUID = 1;
+	public static final int KIND_POWER = 2;
+
+	public int chunkX;
+	public int chunkZ;
+	public int kind;
+	public int count;
+
+	private ByteBuf payload;
+
+	public PacketPipeBatch() {
+	}
+
+	public PacketPipeBatch(int chunkX, int chunkZ, int kind, int count, ByteBuf payload) {
+		this.chunkX = chunkX;
+		this.chunkZ = chunkZ;
+		this.kind = kind;
+		this.count = count;
+		this.payload = payload;
+	}
+
+	@Override
+	public void writeData(ByteBuf data) {
+		data.writeInt(chunkX);
+		data.writeInt(chunkZ);
+		data.writeByte(kind);
+		NetworkUtils.writeVarInt(data, count);
+		NetworkUtils.writeVarInt(data, payload.readableBytes());
+		data.writeBytes(payload, payload.readerIndex(), payload.readableBytes());
+	}
+
+	@Override
+	public void readData(ByteBuf data) {
+		chunkX = data.readInt();
+		chunkZ = data.readInt();
+		kind = data.readUnsignedByte();
+		count = NetworkUtils.readVarInt(data);
+		payload = data.readBytes(NetworkUtils.readVarInt(data));
+	}
+
+	public ByteBuf getPayload() {
+		return payload;
+	}
+
+	@Override
+	public int getID() {
+		return PacketIds.PIPE_BATCH;
+	}
+}
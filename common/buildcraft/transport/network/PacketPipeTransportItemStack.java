@@ -32,13 +32,13 @@ public class PacketPipeTransportItemStack extends Packet {
 
 	@Override
 	public void writeData(ByteBuf data) {
-		data.writeInt(entityId);
+		NetworkUtils.writeVarInt(data, entityId);
 		NetworkUtils.writeStack(data, stack);
 	}
 
 	@Override
 	public void readData(ByteBuf data) {
-		this.entityId = data.readInt();
+		this.entityId = NetworkUtils.readVarInt(data);
 		stack = NetworkUtils.readStack(data);
 		TravelingItem item = TravelingItem.clientCache.get(entityId);
 		if (item != null) {
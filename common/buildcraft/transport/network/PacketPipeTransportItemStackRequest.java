@@ -14,6 +14,7 @@ import net.minecraft.entity.player.EntityPlayer;
 
 import buildcraft.BuildCraftTransport;
 import buildcraft.core.lib.network.Packet;
+import buildcraft.core.lib.utils.NetworkUtils;
 import buildcraft.core.network.PacketIds;
 import buildcraft.transport.TravelingItem;
 
@@ -32,12 +33,12 @@ public class PacketPipeTransportItemStackRequest extends Packet {
 
 	@Override
 	public void writeData(ByteBuf data) {
-		data.writeShort(travelerID);
+		NetworkUtils.writeVarInt(data, travelerID);
 	}
 
 	@Override
 	public void readData(ByteBuf data) {
-		travelerID = data.readShort();
+		travelerID = NetworkUtils.readVarInt(data);
 		TravelingItem.TravelingItemCache cache = TravelingItem.serverCache;
 		item = cache.get(travelerID);		
 	}
@@ -10,12 +10,15 @@ package buildcraft.transport.network;
 
 import io.netty.buffer.ByteBuf;
 
+import net.minecraft.tileentity.TileEntity;
 import net.minecraft.util.MathHelper;
 import net.minecraftforge.common.util.ForgeDirection;
 
 import buildcraft.api.core.EnumColor;
 import buildcraft.core.lib.network.Packet;
+import buildcraft.core.lib.utils.NetworkUtils;
 import buildcraft.core.network.PacketIds;
+import buildcraft.transport.TransportConstants;
 import buildcraft.transport.TravelingItem;
 
 public class PacketPipeTransportTraveler extends Packet {
@@ -49,7 +52,7 @@ public class PacketPipeTransportTraveler extends Packet {
 		data.writeFloat((float) item.yCoord);
 		data.writeFloat((float) item.zCoord);
 
-		data.writeShort(item.id);
+		NetworkUtils.writeVarInt(data, item.id);
 
 		byte flags = (byte) ((item.output.ordinal() & 7) | ((item.input.ordinal() & 7) << 3) | (forceStackRefresh ? 64 : 0));
 		data.writeByte(flags);
@@ -69,7 +72,7 @@ public class PacketPipeTransportTraveler extends Packet {
 		posY = MathHelper.floor_float(itemY);
 		posZ = MathHelper.floor_float(itemZ);
 
-		this.entityId = data.readShort();
+		this.entityId = NetworkUtils.readVarInt(data);
 
 		int flags = data.readUnsignedByte();
 
@@ -86,6 +89,61 @@ public class PacketPipeTransportTraveler extends Packet {
 		this.forceStackRefresh = (flags & 0x40) > 0;
 	}
 
+	/**
+	 * Writes the given item as an entry of a {@link PacketPipeBatch}. The
+	 * position is stored relative to the pipe with 1/255 block precision, and
+	 * the speed is left out when it is the normal pipe speed.
+	 */
+	public static void writeEntry(ByteBuf data, TileEntity pipe, TravelingItem item, boolean forceStackRefresh) {
+		NetworkUtils.writeVarInt(data, item.id);
+
+		boolean defaultSpeed = item.getSpeed() == TransportConstants.PIPE_NORMAL_SPEED;
+		int flags = (item.output.ordinal() & 7) | ((item.input.ordinal() & 7) << 3)
+				| (forceStackRefresh ? 0x40 : 0) | (defaultSpeed ? 0x80 : 0);
+		data.writeByte(flags);
+
+		data.writeByte(item.color != null ? item.color.ordinal() : -1);
+
+		data.writeByte(quantize(item.xCoord - pipe.xCoord));
+		data.writeByte(quantize(item.yCoord - pipe.yCoord));
+		data.writeByte(quantize(item.zCoord - pipe.zCoord));
+
+		if (!defaultSpeed) {
+			data.writeFloat(item.getSpeed());
+		}
+	}
+
+	/**
+	 * Reads an entry written by {@link #writeEntry} for the pipe at the given
+	 * position, replacing whatever this packet held before.
+	 */
+	public void readEntry(ByteBuf data, int x, int y, int z) {
+		posX = x;
+		posY = y;
+		posZ = z;
+
+		this.entityId = NetworkUtils.readVarInt(data);
+
+		int flags = data.readUnsignedByte();
+
+		this.input = ForgeDirection.getOrientation((flags >> 3) & 7);
+		this.output = ForgeDirection.getOrientation(flags & 7);
+		this.forceStackRefresh = (flags & 0x40) != 0;
+
+		byte c = data.readByte();
+		this.color = c != -1 ? EnumColor.fromId(c) : null;
+
+		this.itemX = x + data.readUnsignedByte() / 255F;
+		this.itemY = y + data.readUnsignedByte() / 255F;
+		this.itemZ = z + data.readUnsignedByte() / 255F;
+
+		this.speed = (flags & 0x80) != 0 ? TransportConstants.PIPE_NORMAL_SPEED : data.readFloat();
+	}
+
+	private static int quantize(double offset) {
+		return Math.max(0, Math.min(255, (int) Math.round(offset * 255)));
+	}
+
 	public int getTravelingEntityId() {
 		return entityId;
 	}
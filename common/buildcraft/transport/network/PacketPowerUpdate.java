@@ -10,11 +10,22 @@ package buildcraft.transport.network;
 
 import io.netty.buffer.ByteBuf;
 
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+
 import buildcraft.core.lib.network.PacketCoordinates;
 import buildcraft.core.network.PacketIds;
+import buildcraft.transport.PipeTransportPower;
+import buildcraft.transport.TileGenericPipe;
 import buildcraft.transport.render.PipeRendererTESR;
 
+/**
+ * Updates the power shown flowing through a pipe. Power is sent as the
+ * display stage the renderer uses for it, see {@link #getLevel}. The same
+ * data is also sent as an entry of a {@link PacketPipeBatch}.
+ */
 public class PacketPowerUpdate extends PacketCoordinates {
+	private static final int OVERLOAD = 0x40;
 
 	public boolean overload;
 	public short[] displayPower;
@@ -30,19 +41,73 @@ public class PacketPowerUpdate extends PacketCoordinates {
 	public void readData(ByteBuf data) {
 		super.readData(data);
 		displayPower = new short[] { 0, 0, 0, 0, 0, 0 };
-		overload = data.readBoolean();
+
+		int flags = data.readUnsignedByte();
+		overload = (flags & OVERLOAD) != 0;
 		for (int i = 0; i < displayPower.length; i++) {
-			displayPower[i] = data.readUnsignedByte();
+			if ((flags & (1 << i)) != 0) {
+				displayPower[i] = data.readUnsignedByte();
+			}
 		}
 	}
 
 	@Override
 	public void writeData(ByteBuf data) {
 		super.writeData(data);
-		data.writeBoolean(overload);
-		for (short element : displayPower) {
-			data.writeByte(Math.min(PipeRendererTESR.POWER_STAGES,
-					(int) Math.ceil(element * PipeRendererTESR.DISPLAY_MULTIPLIER)));
+
+		short[] levels = new short[6];
+		for (int i = 0; i < levels.length; i++) {
+			levels[i] = (short) getLevel(displayPower[i]);
+		}
+		writeEntry(data, 0x3F, overload, levels);
+	}
+
+	/**
+	 * Returns the stage the given display power is rendered at.
+	 */
+	public static int getLevel(short displayPower) {
+		return Math.min(PipeRendererTESR.POWER_STAGES,
+				(int) Math.ceil(displayPower * PipeRendererTESR.DISPLAY_MULTIPLIER));
+	}
+
+	/**
+	 * Writes an update of the power shown in a pipe. Bit n of changed is set
+	 * when the level of side n changed, only those levels are written.
+	 */
+	public static void writeEntry(ByteBuf data, int changed, boolean overload, short[] levels) {
+		data.writeByte(changed | (overload ? OVERLOAD : 0));
+
+		for (int i = 0; i < 6; i++) {
+			if ((changed & (1 << i)) != 0) {
+				data.writeByte(levels[i]);
+			}
+		}
+	}
+
+	/**
+	 * Reads an update written by {@link #writeEntry}, and applies it to the
+	 * pipe at the given position if there is one. The entry is consumed
+	 * either way.
+	 */
+	public static void readEntry(ByteBuf data, World world, int x, int y, int z) {
+		int flags = data.readUnsignedByte();
+		short[] levels = new short[6];
+
+		for (int i = 0; i < 6; i++) {
+			if ((flags & (1 << i)) != 0) {
+				levels[i] = data.readUnsignedByte();
+			}
+		}
+
+		if (world == null || !world.blockExists(x, y, z)) {
+			return;
+		}
+
+		TileEntity entity = world.getTileEntity(x, y, z);
+
+		if (entity instanceof TileGenericPipe && ((TileGenericPipe) entity).pipe != null
+				&& ((TileGenericPipe) entity).pipe.transport instanceof PipeTransportPower) {
+			((PipeTransportPower) ((TileGenericPipe) entity).pipe.transport).handlePowerUpdate(flags & 0x3F, levels, (flags & OVERLOAD) != 0);
 		}
 	}
 }
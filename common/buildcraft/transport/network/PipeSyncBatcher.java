@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.transport.network;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+import net.minecraftforge.event.world.WorldEvent;
+
+import buildcraft.BuildCraftTransport;
+
+/**
+ * Collects pipe updates during a server tick and sends them at the end of it
+ * as one {@link PacketPipeBatch} per chunk and kind, instead of one packet per
+ * update. Entries are encoded as soon as they are queued, so later changes to
+ * the pipe do not leak into the data sent for this tick.
+ */
+public class PipeSyncBatcher {
+	/**
+	 * Distance from a chunk's center to its corners, rounded up. Added to the
+	 * requested range so every pipe in the chunk is covered.
+	 */
+	private static final int CHUNK_RADIUS = 12;
+
+	private static final class Batch {
+		public final int chunkX, chunkZ, kind, range;
+		public final ByteBuf payload = Unpooled.buffer();
+		public int count;
+		public int minY = Integer.MAX_VALUE, maxY = Integer.MIN_VALUE;
+
+		public Batch(int chunkX, int chunkZ, int kind, int range) {
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+			this.kind = kind;
+			this.range = range;
+		}
+	}
+
+	private final Map<World, TLongObjectHashMap<Batch>> batches = new HashMap<World, TLongObjectHashMap<Batch>>();
+
+	/**
+	 * Starts a new entry for the given pipe and returns the buffer its data
+	 * must be written to. The pipe's position has already been written.
+	 *
+	 * @param range the distance around the pipe within which players should
+	 * receive the entry
+	 */
+	public ByteBuf startEntry(TileEntity tile, int kind, int range) {
+		World world = tile.getWorldObj();
+		TLongObjectHashMap<Batch> worldBatches = batches.get(world);
+
+		if (worldBatches == null) {
+			worldBatches = new TLongObjectHashMap<Batch>();
+			batches.put(world, worldBatches);
+		}
+
+		int chunkX = tile.xCoord >> 4;
+		int chunkZ = tile.zCoord >> 4;
+		long key = (chunkX & 0xFFFFFFL) | ((chunkZ & 0xFFFFFFL) << 24) | ((long) kind << 48);
+		Batch batch = worldBatches.get(key);
+
+		if (batch == null) {
+			batch = new Batch(chunkX, chunkZ, kind, range);
+			worldBatches.put(key, batch);
+		}
+
+		batch.count++;
+		batch.minY = Math.min(batch.minY, tile.yCoord);
+		batch.maxY = Math.max(batch.maxY, tile.yCoord);
+
+		batch.payload.writeByte((tile.xCoord & 15) | ((tile.zCoord & 15) << 4));
+		batch.payload.writeByte(tile.yCoord);
+		return batch.payload;
+	}
+
+	public void flush(World world) {
+		TLongObjectHashMap<Batch> worldBatches = batches.get(world);
+
+		if (worldBatches == null || worldBatches.isEmpty()) {
+			return;
+		}
+
+		for (Batch batch : worldBatches.valueCollection()) {
+			int x = (batch.chunkX << 4) + 8;
+			int y = (batch.minY + batch.maxY) / 2;
+			int z = (batch.chunkZ << 4) + 8;
+			int radius = batch.range + CHUNK_RADIUS + (batch.maxY - batch.minY + 1) / 2;
+
+			PacketPipeBatch packet = new PacketPipeBatch(batch.chunkX, batch.chunkZ, batch.kind, batch.count, batch.payload);
+			BuildCraftTransport.instance.sendToPlayers(packet, world, x, y, z, radius);
+		}
+
+		worldBatches.clear();
+	}
+
+	@SubscribeEvent
+	public void tick(TickEvent.WorldTickEvent event) {
+		if (event.phase == TickEvent.Phase.END && !event.world.isRemote) {
+			flush(event.world);
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event) {
+		batches.remove(event.world);
+	}
+}
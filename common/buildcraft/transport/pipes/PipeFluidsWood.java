@@ -79,6 +79,11 @@ public class PipeFluidsWood extends Pipe<PipeTransportFluids> implements IEnergy
 		return meta >= 6 ? null : container.getTile(ForgeDirection.getOrientation(meta));
 	}
 
+	@Override
+	public boolean isIdle() {
+		return liquidToExtract <= 0 && super.isIdle();
+	}
+
 	@Override
 	public void updateEntity() {
 		super.updateEntity();
@@ -170,6 +175,7 @@ public class PipeFluidsWood extends Pipe<PipeTransportFluids> implements IEnergy
 		int received = Math.min(maxReceive, maxToReceive);
 		if (!simulate) {
 			liquidToExtract += ENERGY_MULTIPLIER * received;
+			container.wakeUp();
 		}
 		return received;
 	}
@@ -26,7 +26,7 @@ import buildcraft.BuildCraftTransport;
 import buildcraft.api.core.IIconProvider;
 import buildcraft.core.GuiIds;
 import buildcraft.core.lib.inventory.SimpleInventory;
-import buildcraft.core.lib.inventory.StackHelper;
+import buildcraft.core.lib.inventory.StackFilterIndex;
 import buildcraft.core.lib.utils.NetworkUtils;
 import buildcraft.transport.BlockGenericPipe;
 import buildcraft.transport.IDiamondPipe;
@@ -56,10 +56,17 @@ public class PipeItemsDiamond extends Pipe<PipeTransportItems> implements IDiamo
 					}
 				}
 			}
+
+			filterIndexDirty = true;
 		}
 	}
+
+	private static final long SIDE_FILTERS = 0x1FFL;
+
 	private SimpleFilterInventory filters = new SimpleFilterInventory(54, "Filters", 1);
 	private long usedFilters;
+	private final StackFilterIndex filterIndex = new StackFilterIndex();
+	private boolean filterIndexDirty = true;
 
 	public PipeItemsDiamond(Item item) {
 		super(new PipeTransportItems(), item);
@@ -118,46 +125,38 @@ public class PipeItemsDiamond extends Pipe<PipeTransportItems> implements IDiamo
 		return true;
 	}
 
-	private boolean findDest(PipeEventItem.FindDest event) {
-		for (ForgeDirection dir : event.destinations) {
-			if (filters.filterCounts[dir.ordinal()] > 0) {
-				for (int slot = 0; slot < 9; ++slot) {
-					int v = dir.ordinal() * 9 + slot;
-					if ((usedFilters & (1 << v)) != 0) {
-						continue;
-					}
+	private long getMatchingFilters(ItemStack stack) {
+		if (filterIndexDirty) {
+			filterIndex.clear();
 
-					ItemStack filter = getFilters().getStackInSlot(v);
+			for (int slot = 0; slot < filters.getSizeInventory(); slot++) {
+				filterIndex.add(slot, filters.getStackInSlot(slot));
+			}
 
-					if (StackHelper.isMatchingItemOrList(filter, event.item.getItemStack())) {
-						usedFilters |= 1 << v;
-						event.destinations.clear();
-						event.destinations.add(dir);
-						event.shuffle = false;
-						return true;
-					}
-				}
+			filterIndexDirty = false;
+		}
+
+		return filterIndex.getMatches(stack);
+	}
+
+	private boolean findDest(PipeEventItem.FindDest event, long matches) {
+		for (ForgeDirection dir : event.destinations) {
+			long available = matches & ~usedFilters & (SIDE_FILTERS << (dir.ordinal() * 9));
+
+			if (available != 0) {
+				usedFilters |= Long.lowestOneBit(available);
+				event.destinations.clear();
+				event.destinations.add(dir);
+				event.shuffle = false;
+				return true;
 			}
 		}
 		return false;
 	}
 
-	private void clearDest(PipeEventItem.FindDest event) {
+	private void clearDest(PipeEventItem.FindDest event, long matches) {
 		for (ForgeDirection dir : event.destinations) {
-			if (filters.filterCounts[dir.ordinal()] > 0) {
-				for (int slot = 0; slot < 9; ++slot) {
-					int v = dir.ordinal() * 9 + slot;
-					if ((usedFilters & (1 << v)) == 0) {
-						continue;
-					}
-
-					ItemStack filter = getFilters().getStackInSlot(v);
-
-					if (StackHelper.isMatchingItemOrList(filter, event.item.getItemStack())) {
-						usedFilters ^= 1 << v;
-					}
-				}
-			}
+			usedFilters &= ~(matches & (SIDE_FILTERS << (dir.ordinal() * 9)));
 		}
 	}
 
@@ -167,13 +166,15 @@ public class PipeItemsDiamond extends Pipe<PipeTransportItems> implements IDiamo
 		// will change the destination.
 		// This lets us skip a few logic things.
 
-		if (findDest(event)) {
+		long matches = getMatchingFilters(event.item.getItemStack());
+
+		if (findDest(event, matches)) {
 			return;
 		}
 
 		if (usedFilters != 0) {
-			clearDest(event);
-			if (findDest(event)) {
+			clearDest(event, matches);
+			if (findDest(event, matches)) {
 				return;
 			}
 		}
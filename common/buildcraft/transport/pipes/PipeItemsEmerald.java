@@ -22,9 +22,8 @@ import net.minecraftforge.common.util.ForgeDirection;
 import buildcraft.BuildCraftTransport;
 import buildcraft.api.core.ISerializable;
 import buildcraft.core.GuiIds;
-import buildcraft.core.lib.inventory.InvUtils;
-import buildcraft.core.lib.inventory.InventoryWrapper;
 import buildcraft.core.lib.inventory.SimpleInventory;
+import buildcraft.core.lib.inventory.StackFilterIndex;
 import buildcraft.core.lib.inventory.StackHelper;
 import buildcraft.core.lib.network.IGuiReturnHandler;
 import buildcraft.core.lib.utils.NetworkUtils;
@@ -64,7 +63,16 @@ public class PipeItemsEmerald extends PipeItemsWood implements ISerializable, IG
 
 	private EmeraldPipeSettings settings = new EmeraldPipeSettings();
 
-	private final SimpleInventory filters = new SimpleInventory(9, "Filters", 1);
+	private final SimpleInventory filters = new SimpleInventory(9, "Filters", 1) {
+		@Override
+		public void markDirty() {
+			super.markDirty();
+			filterIndexDirty = true;
+		}
+	};
+
+	private final StackFilterIndex filterIndex = new StackFilterIndex();
+	private boolean filterIndexDirty = true;
 
 	private int currentFilter = 0;
 
@@ -101,7 +109,7 @@ public class PipeItemsEmerald extends PipeItemsWood implements ISerializable, IG
 		}
 
 		// Handle possible double chests and wrap it in the ISidedInventory interface.
-		ISidedInventory sidedInventory = InventoryWrapper.getWrappedInventory(InvUtils.getInventory(inventory));
+		ISidedInventory sidedInventory = cursor.wrap(inventory);
 
 		if (settings.getFilterMode() == FilterMode.ROUND_ROBIN) {
 			return checkExtractRoundRobin(sidedInventory, doRemove, from);
@@ -111,10 +119,14 @@ public class PipeItemsEmerald extends PipeItemsWood implements ISerializable, IG
 	}
 
 	private ItemStack[] checkExtractFiltered(ISidedInventory inventory, boolean doRemove, ForgeDirection from) {
-		for (int k : inventory.getAccessibleSlotsFromSide(from.ordinal())) {
+		cursor.refresh(inventory, from);
+
+		for (int pos = cursor.first(); pos >= 0; pos = cursor.next(pos)) {
+			int k = cursor.getSlot(pos);
 			ItemStack stack = inventory.getStackInSlot(k);
 
 			if (stack == null || stack.stackSize <= 0) {
+				cursor.markEmpty(pos);
 				continue;
 			}
 
@@ -137,6 +149,7 @@ public class PipeItemsEmerald extends PipeItemsWood implements ISerializable, IG
 				battery.useEnergy(energyUsed, energyUsed, false);
 
 				stack = inventory.decrStackSize(k, stackSize);
+				cursor.markExtracted(pos);
 			}
 
 			return new ItemStack[] {stack};
@@ -146,54 +159,60 @@ public class PipeItemsEmerald extends PipeItemsWood implements ISerializable, IG
 	}
 
 	private ItemStack[] checkExtractRoundRobin(ISidedInventory inventory, boolean doRemove, ForgeDirection from) {
-		for (int i : inventory.getAccessibleSlotsFromSide(from.ordinal())) {
+		cursor.refresh(inventory, from);
+
+		for (int pos = cursor.first(); pos >= 0; pos = cursor.next(pos)) {
+			int i = cursor.getSlot(pos);
 			ItemStack stack = inventory.getStackInSlot(i);
 
-			if (stack != null && stack.stackSize > 0) {
-				ItemStack filter = getCurrentFilter();
+			if (stack == null || stack.stackSize <= 0) {
+				cursor.markEmpty(pos);
+				continue;
+			}
 
-				if (filter == null) {
-					return null;
-				}
+			ItemStack filter = getCurrentFilter();
 
-				if (!StackHelper.isMatchingItemOrList(filter, stack)) {
-					continue;
-				}
+			if (filter == null) {
+				return null;
+			}
 
-				if (!inventory.canExtractItem(i, stack, from.ordinal())) {
-					continue;
-				}
+			if (!StackHelper.isMatchingItemOrList(filter, stack)) {
+				continue;
+			}
 
-				if (doRemove) {
-					// In Round Robin mode, extract only 1 item regardless of power level.
-					stack = inventory.decrStackSize(i, 1);
-					incrementFilter();
-				} else {
-					stack = stack.copy();
-					stack.stackSize = 1;
-				}
+			if (!inventory.canExtractItem(i, stack, from.ordinal())) {
+				continue;
+			}
 
-				return new ItemStack[]{ stack };
+			if (doRemove) {
+				// In Round Robin mode, extract only 1 item regardless of power level.
+				stack = inventory.decrStackSize(i, 1);
+				cursor.markExtracted(pos);
+				incrementFilter();
+			} else {
+				stack = stack.copy();
+				stack.stackSize = 1;
 			}
+
+			return new ItemStack[]{ stack };
 		}
 
 		return null;
 	}
 
 	private boolean isFiltered(ItemStack stack) {
-		for (int i = 0; i < filters.getSizeInventory(); i++) {
-			ItemStack filter = filters.getStackInSlot(i);
+		if (filterIndexDirty) {
+			filterIndex.clear();
 
-			if (filter == null) {
-				return false;
+			// Filters after the first empty slot are ignored.
+			for (int i = 0; i < filters.getSizeInventory() && filters.getStackInSlot(i) != null; i++) {
+				filterIndex.add(i, filters.getStackInSlot(i));
 			}
 
-			if (StackHelper.isMatchingItemOrList(filter, stack)) {
-				return true;
-			}
+			filterIndexDirty = false;
 		}
 
-		return false;
+		return filterIndex.getMatches(stack) != 0;
 	}
 
 	private void incrementFilter() {
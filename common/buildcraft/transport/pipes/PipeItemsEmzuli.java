@@ -27,7 +27,6 @@ import buildcraft.api.core.EnumColor;
 import buildcraft.api.statements.IActionInternal;
 import buildcraft.api.statements.StatementSlot;
 import buildcraft.core.GuiIds;
-import buildcraft.core.lib.inventory.InvUtils;
 import buildcraft.core.lib.inventory.SimpleInventory;
 import buildcraft.core.lib.inventory.StackHelper;
 import buildcraft.core.lib.network.IGuiReturnHandler;
@@ -98,8 +97,7 @@ public class PipeItemsEmzuli extends PipeItemsWood implements IGuiReturnHandler
 			return null;
 		}
 
-		IInventory inv = InvUtils.getInventory(inventory);
-		ItemStack result = checkExtractGeneric(inv, doRemove, from);
+		ItemStack result = checkExtractGeneric(inventory, doRemove, from);
 
 		if (result != null) {
 			return new ItemStack[]{result};
@@ -110,26 +108,32 @@ public class PipeItemsEmzuli extends PipeItemsWood implements IGuiReturnHandler
 
 	@Override
 	public ItemStack checkExtractGeneric(net.minecraft.inventory.ISidedInventory inventory, boolean doRemove, ForgeDirection from) {
-		for (int i : inventory.getAccessibleSlotsFromSide(from.ordinal())) {
+		cursor.refresh(inventory, from);
+
+		for (int pos = cursor.first(); pos >= 0; pos = cursor.next(pos)) {
+			int i = cursor.getSlot(pos);
 			ItemStack stack = inventory.getStackInSlot(i);
-			if (stack != null && stack.stackSize > 0) {
-				ItemStack filter = getCurrentFilter();
-				if (filter == null) {
-					return null;
-				}
-				if (!StackHelper.isMatchingItemOrList(stack, filter)) {
-					continue;
-				}
-				if (!inventory.canExtractItem(i, stack, from.ordinal())) {
-					continue;
-				}
-				if (doRemove) {
-					int stackSize = (int) Math.floor(battery.useEnergy(10, stack.stackSize * 10, false) / 10);
-					
-					return inventory.decrStackSize(i, stackSize);
-				} else {
-					return stack;
-				}
+			if (stack == null || stack.stackSize <= 0) {
+				cursor.markEmpty(pos);
+				continue;
+			}
+			ItemStack filter = getCurrentFilter();
+			if (filter == null) {
+				return null;
+			}
+			if (!StackHelper.isMatchingItemOrList(stack, filter)) {
+				continue;
+			}
+			if (!inventory.canExtractItem(i, stack, from.ordinal())) {
+				continue;
+			}
+			if (doRemove) {
+				int stackSize = (int) Math.floor(battery.useEnergy(10, stack.stackSize * 10, false) / 10);
+				ItemStack extracted = inventory.decrStackSize(i, stackSize);
+				cursor.markExtracted(pos);
+				return extracted;
+			} else {
+				return stack;
 			}
 		}
 
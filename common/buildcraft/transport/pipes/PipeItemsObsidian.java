@@ -8,8 +8,9 @@
  */
 package buildcraft.transport.pipes;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
+import java.util.Iterator;
 
 import net.minecraft.entity.Entity;
 import net.minecraft.entity.item.EntityItem;
@@ -38,6 +39,7 @@ import buildcraft.transport.PipeTransportItems;
 import buildcraft.transport.TransportProxy;
 import buildcraft.transport.TravelingItem;
 import buildcraft.transport.pipes.events.PipeEventItem;
+import buildcraft.transport.utils.SuctionIndex;
 import buildcraft.transport.utils.TransportUtils;
 
 public class PipeItemsObsidian extends Pipe<PipeTransportItems> implements IEnergyHandler {
@@ -45,6 +47,11 @@ public class PipeItemsObsidian extends Pipe<PipeTransportItems> implements IEner
 
 	private int[] entitiesDropped;
 	private int entitiesDroppedIndex = 0;
+
+	private ForgeDirection suctionOrientation = ForgeDirection.UNKNOWN;
+	private AxisAlignedBB[] suctionBoxes;
+	private AxisAlignedBB suctionBounds;
+	private final ArrayList<Entity> suctionCandidates = new ArrayList<Entity>();
 	
 	public PipeItemsObsidian(Item item) {
 		super(new PipeTransportItems(), item);
@@ -143,10 +150,23 @@ public class PipeItemsObsidian extends Pipe<PipeTransportItems> implements IEner
 		return AxisAlignedBB.getBoundingBox(min.x, min.y, min.z, max.x, max.y, max.z);
 	}
 
+	@Override
+	public boolean isIdle() {
+		return suctionCandidates.isEmpty() && super.isIdle();
+	}
+
 	@Override
 	public void updateEntity () {
 		super.updateEntity();
 
+		if (container.getWorldObj().isRemote) {
+			return;
+		}
+
+		updateSuctionVolume();
+		// Even without energy, so the pipe can go idle once they are gone.
+		pruneSuctionCandidates();
+
 		if (battery.getEnergyStored() > 0) {
 			for (int j = 1; j < 5; ++j) {
 				if (suckItem(j)) {
@@ -158,16 +178,101 @@ public class PipeItemsObsidian extends Pipe<PipeTransportItems> implements IEner
 		}
 	}
 
-	private boolean suckItem(int distance) {
-		AxisAlignedBB box = getSuckingBox(getOpenOrientation(), distance);
+	@Override
+	public void invalidate() {
+		removeSuctionVolume();
+		super.invalidate();
+	}
+
+	@Override
+	public void onChunkUnload() {
+		removeSuctionVolume();
+		super.onChunkUnload();
+	}
+
+	/**
+	 * Returns the box holding all the volumes items are pulled from, as
+	 * registered in the {@link SuctionIndex}.
+	 */
+	public AxisAlignedBB getSuctionBounds() {
+		return suctionBounds;
+	}
+
+	/**
+	 * Called by the {@link SuctionIndex} when an entity which may be pulled
+	 * in is in the suction volume.
+	 */
+	public void addSuctionCandidate(Entity entity) {
+		if (!suctionCandidates.contains(entity)) {
+			suctionCandidates.add(entity);
+			container.wakeUp();
+		}
+	}
+
+	private void updateSuctionVolume() {
+		ForgeDirection orientation = getOpenOrientation();
+
+		if (orientation == suctionOrientation) {
+			return;
+		}
 
-		if (box == null) {
+		removeSuctionVolume();
+
+		if (orientation == ForgeDirection.UNKNOWN) {
+			return;
+		}
+
+		suctionOrientation = orientation;
+		suctionBoxes = new AxisAlignedBB[4];
+
+		for (int j = 1; j < 5; ++j) {
+			suctionBoxes[j - 1] = getSuckingBox(orientation, j);
+		}
+
+		AxisAlignedBB first = suctionBoxes[0];
+		AxisAlignedBB last = suctionBoxes[3];
+		suctionBounds = AxisAlignedBB.getBoundingBox(
+				Math.min(first.minX, last.minX), Math.min(first.minY, last.minY), Math.min(first.minZ, last.minZ),
+				Math.max(first.maxX, last.maxX), Math.max(first.maxY, last.maxY), Math.max(first.maxZ, last.maxZ));
+
+		BuildCraftTransport.suctionIndex.register(this, suctionBounds);
+	}
+
+	private void removeSuctionVolume() {
+		if (suctionBounds != null) {
+			BuildCraftTransport.suctionIndex.unregister(this, suctionBounds);
+		}
+
+		suctionOrientation = ForgeDirection.UNKNOWN;
+		suctionBoxes = null;
+		suctionBounds = null;
+		suctionCandidates.clear();
+	}
+
+	private void pruneSuctionCandidates() {
+		Iterator<Entity> it = suctionCandidates.iterator();
+
+		while (it.hasNext()) {
+			Entity entity = it.next();
+
+			if (entity.isDead || !entity.boundingBox.intersectsWith(suctionBounds)) {
+				it.remove();
+			}
+		}
+	}
+
+	private boolean suckItem(int distance) {
+		if (suctionBoxes == null) {
 			return false;
 		}
 
-		List<Entity> discoveredEntities = container.getWorldObj().getEntitiesWithinAABB(Entity.class, box);
+		AxisAlignedBB box = suctionBoxes[distance - 1];
+
+		for (Entity entity : suctionCandidates) {
+			if (!entity.boundingBox.intersectsWith(box)) {
+				continue;
+			}
 
-		for (Entity entity : discoveredEntities) {
 			if (canSuck(entity, distance)) {
 				pullItemIntoPipe(entity, distance);
 				return true;
@@ -24,8 +24,7 @@ import buildcraft.api.core.IIconProvider;
 import buildcraft.api.core.Position;
 import buildcraft.api.transport.IPipeTile;
 import buildcraft.core.lib.RFBattery;
-import buildcraft.core.lib.inventory.InvUtils;
-import buildcraft.core.lib.inventory.InventoryWrapper;
+import buildcraft.core.lib.inventory.ExtractionCursor;
 import buildcraft.transport.Pipe;
 import buildcraft.transport.PipeIconProvider;
 import buildcraft.transport.PipeTransportItems;
@@ -37,6 +36,7 @@ public class PipeItemsWood extends Pipe<PipeTransportItems> implements IEnergyHa
 	protected int standardIconIndex = PipeIconProvider.TYPE.PipeItemsWood_Standard.ordinal();
 	protected int solidIconIndex = PipeIconProvider.TYPE.PipeAllWood_Solid.ordinal();
 	protected float speedMultiplier = 1.0F;
+	protected final ExtractionCursor cursor = new ExtractionCursor();
 
 	private int ticksSincePull = 0;
 	
@@ -95,6 +95,11 @@ public class PipeItemsWood extends Pipe<PipeTransportItems> implements IEnergyHa
 		}
 	}
 
+	@Override
+	public boolean isIdle() {
+		return battery.getEnergyStored() == 0 && super.isIdle();
+	}
+
 	@Override
 	public void updateEntity () {
 		super.updateEntity();
@@ -196,8 +201,7 @@ public class PipeItemsWood extends Pipe<PipeTransportItems> implements IEnergyHa
 	 * on the position of the pipe.
 	 */
 	public ItemStack[] checkExtract(IInventory inventory, boolean doRemove, ForgeDirection from) {
-		IInventory inv = InvUtils.getInventory(inventory);
-		ItemStack result = checkExtractGeneric(inv, doRemove, from);
+		ItemStack result = checkExtractGeneric(inventory, doRemove, from);
 
 		if (result != null) {
 			return new ItemStack[]{result};
@@ -207,7 +211,7 @@ public class PipeItemsWood extends Pipe<PipeTransportItems> implements IEnergyHa
 	}
 
 	public ItemStack checkExtractGeneric(IInventory inventory, boolean doRemove, ForgeDirection from) {
-		return checkExtractGeneric(InventoryWrapper.getWrappedInventory(inventory), doRemove, from);
+		return checkExtractGeneric(cursor.wrap(inventory), doRemove, from);
 	}
 
 	public ItemStack checkExtractGeneric(ISidedInventory inventory, boolean doRemove, ForgeDirection from) {
@@ -215,10 +219,18 @@ public class PipeItemsWood extends Pipe<PipeTransportItems> implements IEnergyHa
 			return null;
 		}
 
-		for (int k : inventory.getAccessibleSlotsFromSide(from.ordinal())) {
+		cursor.refresh(inventory, from);
+
+		for (int pos = cursor.first(); pos >= 0; pos = cursor.next(pos)) {
+			int k = cursor.getSlot(pos);
 			ItemStack slot = inventory.getStackInSlot(k);
 
-			if (slot != null && slot.stackSize > 0 && inventory.canExtractItem(k, slot, from.ordinal())) {
+			if (slot == null || slot.stackSize <= 0) {
+				cursor.markEmpty(pos);
+				continue;
+			}
+
+			if (inventory.canExtractItem(k, slot, from.ordinal())) {
 				if (doRemove) {
 					int maxStackSize = slot.stackSize;
 					int stackSize = Math.min(maxStackSize, battery.getEnergyStored() / 10);
@@ -227,7 +239,9 @@ public class PipeItemsWood extends Pipe<PipeTransportItems> implements IEnergyHa
 					int energyUsed = (int) (stackSize * 10 * speedMultiplier);
 					battery.useEnergy(energyUsed, energyUsed, false);
 
-					return inventory.decrStackSize(k, stackSize);
+					ItemStack extracted = inventory.decrStackSize(k, stackSize);
+					cursor.markExtracted(pos);
+					return extracted;
 				} else {
 					return slot;
 				}
@@ -245,7 +259,13 @@ public class PipeItemsWood extends Pipe<PipeTransportItems> implements IEnergyHa
 	@Override
 	public int receiveEnergy(ForgeDirection from, int maxReceive,
 			boolean simulate) {
-		return battery.receiveEnergy(maxReceive, simulate);
+		int received = battery.receiveEnergy(maxReceive, simulate);
+
+		if (received > 0 && !simulate) {
+			container.wakeUp();
+		}
+
+		return received;
 	}
 
 	@Override
@@ -17,9 +17,13 @@ import net.minecraftforge.common.util.ForgeDirection;
 import buildcraft.transport.Pipe;
 import buildcraft.transport.TravelingItem;
 
+/**
+ * Item events are reused by the pipe transport between dispatches, so
+ * handlers must not keep references to them.
+ */
 public abstract class PipeEventItem extends PipeEvent {
 
-	public final TravelingItem item;
+	public TravelingItem item;
 
 	public PipeEventItem(Pipe pipe, TravelingItem item) {
 		super(pipe);
@@ -41,7 +45,7 @@ public abstract class PipeEventItem extends PipeEvent {
 	}
 
 	public static class ReachedEnd extends PipeEventItem {
-		public final TileEntity dest;
+		public TileEntity dest;
 		public boolean handled = false;
 
 		public ReachedEnd(Pipe pipe, TravelingItem item, TileEntity dest) {
@@ -110,6 +110,11 @@ public class LensPluggable extends PipePluggable {
 		return false;
 	}
 
+	@Override
+	public boolean requiresUpdates() {
+		return false;
+	}
+
 	@Override
 	public AxisAlignedBB getBoundingBox(ForgeDirection side) {
 		float[][] bounds = new float[3][2];
@@ -90,6 +90,11 @@ public class PlugPluggable extends PipePluggable {
 		return true;
 	}
 
+	@Override
+	public boolean requiresUpdates() {
+		return false;
+	}
+
 	@Override
 	public AxisAlignedBB getBoundingBox(ForgeDirection side) {
 		float[][] bounds = new float[3][2];
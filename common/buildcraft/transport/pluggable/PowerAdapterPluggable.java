@@ -103,6 +103,11 @@ public class PowerAdapterPluggable extends PipePluggable implements IEnergyHandl
 		return true;
 	}
 
+	@Override
+	public boolean requiresUpdates() {
+		return false;
+	}
+
 	@Override
 	public AxisAlignedBB getBoundingBox(ForgeDirection side) {
 		float[][] bounds = new float[3][2];
@@ -62,7 +62,7 @@ public class PipeRendererTESR extends TileEntitySpecialRenderer {
 	public static final float DISPLAY_MULTIPLIER = 0.1f;
 	public static final int POWER_STAGES = 100;
 
-	private static final int LIQUID_STAGES = 40;
+	private static final int LIQUID_STAGES = FluidRenderData.LIQUID_STAGES;
 	private static final int MAX_ITEMS_TO_RENDER = 10;
 
 	public int[] displayPowerList = new int[POWER_STAGES];
@@ -15,10 +15,11 @@ import net.minecraft.client.renderer.texture.IIconRegister;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerInternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.core.lib.utils.StringUtils;
 import buildcraft.core.statements.BCStatement;
 
-public class TriggerClockTimer extends BCStatement implements ITriggerInternal {
+public class TriggerClockTimer extends BCStatement implements ITriggerInternal, ITriggerRecheck {
 
 	public enum Time {
 
@@ -53,4 +54,14 @@ public class TriggerClockTimer extends BCStatement implements ITriggerInternal {
 			IStatementParameter[] parameters) {
 		return false;
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.EVERY_TICK;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 0;
+	}
 }
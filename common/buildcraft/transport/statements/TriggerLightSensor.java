@@ -9,6 +9,7 @@ import buildcraft.api.core.Position;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerInternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.api.statements.containers.ISidedStatementContainer;
 import buildcraft.core.lib.utils.StringUtils;
 import buildcraft.core.statements.BCStatement;
@@ -16,7 +17,7 @@ import buildcraft.core.statements.BCStatement;
 /**
  * Created by asie on 3/14/15.
  */
-public class TriggerLightSensor extends BCStatement implements ITriggerInternal {
+public class TriggerLightSensor extends BCStatement implements ITriggerInternal, ITriggerRecheck {
 	private final boolean bright;
 
 	public TriggerLightSensor(boolean bright) {
@@ -47,4 +48,14 @@ public class TriggerLightSensor extends BCStatement implements ITriggerInternal
 	public void registerIcons(IIconRegister iconRegister) {
 		icon = iconRegister.registerIcon("buildcrafttransport:triggers/trigger_light_" + (bright ? "bright" : "dark"));
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.PERIODIC;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 20;
+	}
 }
@@ -22,6 +22,7 @@ import buildcraft.api.gates.IGate;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerInternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.api.statements.StatementParameterItemStack;
 import buildcraft.core.lib.inventory.StackHelper;
 import buildcraft.core.lib.utils.StringUtils;
@@ -32,7 +33,7 @@ import buildcraft.transport.PipeTransportItems;
 import buildcraft.transport.PipeTransportPower;
 import buildcraft.transport.TravelingItem;
 
-public class TriggerPipeContents extends BCStatement implements ITriggerInternal {
+public class TriggerPipeContents extends BCStatement implements ITriggerInternal, ITriggerRecheck {
 
 	public enum PipeContents {
 		empty,
@@ -161,4 +162,14 @@ public class TriggerPipeContents extends BCStatement implements ITriggerInternal
 	public void registerIcons(IIconRegister iconRegister) {
 		icon = iconRegister.registerIcon("buildcrafttransport:triggers/trigger_pipecontents_" + kind.name().toLowerCase(Locale.ENGLISH));
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.EVERY_TICK;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 0;
+	}
 }
@@ -16,12 +16,13 @@ import buildcraft.api.gates.IGate;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerInternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.api.transport.PipeWire;
 import buildcraft.core.lib.utils.StringUtils;
 import buildcraft.core.statements.BCStatement;
 import buildcraft.transport.Pipe;
 
-public class TriggerPipeSignal extends BCStatement implements ITriggerInternal {
+public class TriggerPipeSignal extends BCStatement implements ITriggerInternal, ITriggerRecheck {
 
 	boolean active;
 	PipeWire color;
@@ -52,14 +53,8 @@ public class TriggerPipeSignal extends BCStatement implements ITriggerInternal {
 		
 		Pipe<?> pipe = (Pipe<?>) ((IGate) container).getPipe();
 
-		if (active) {
-			if (pipe.signalStrength[color.ordinal()] == 0) {
-				return false;
-			}
-		} else {
-			if (pipe.signalStrength[color.ordinal()] > 0) {
-				return false;
-			}
+		if (pipe.isWireActive(color) != active) {
+			return false;
 		}
 
 		for (IStatementParameter param : parameters) {
@@ -67,14 +62,8 @@ public class TriggerPipeSignal extends BCStatement implements ITriggerInternal {
 				TriggerParameterSignal signal = (TriggerParameterSignal) param;
 
 				if (signal.color != null) {
-					if (signal.active) {
-						if (pipe.signalStrength[signal.color.ordinal()] == 0) {
-							return false;
-						}
-					} else {
-						if (pipe.signalStrength[signal.color.ordinal()] > 0) {
-							return false;
-						}
+					if (pipe.isWireActive(signal.color) != signal.active) {
+						return false;
 					}
 				}
 			}
@@ -92,4 +81,14 @@ public class TriggerPipeSignal extends BCStatement implements ITriggerInternal {
 	public IStatementParameter createParameter(int index) {
 		return new TriggerParameterSignal();
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.WIRE_CHANGE;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 0;
+	}
 }
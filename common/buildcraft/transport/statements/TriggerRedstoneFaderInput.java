@@ -16,12 +16,13 @@ import buildcraft.api.gates.IGate;
 import buildcraft.api.statements.IStatementContainer;
 import buildcraft.api.statements.IStatementParameter;
 import buildcraft.api.statements.ITriggerInternal;
+import buildcraft.api.statements.ITriggerRecheck;
 import buildcraft.core.lib.utils.StringUtils;
 import buildcraft.core.statements.BCStatement;
 import buildcraft.core.statements.StatementParameterRedstoneGateSideOnly;
 import buildcraft.transport.TileGenericPipe;
 
-public class TriggerRedstoneFaderInput extends BCStatement implements ITriggerInternal {
+public class TriggerRedstoneFaderInput extends BCStatement implements ITriggerInternal, ITriggerRecheck {
 
 	public final int level;
 
@@ -74,4 +75,14 @@ public class TriggerRedstoneFaderInput extends BCStatement implements ITriggerIn
 	public int maxParameters() {
 		return 1;
 	}
+
+	@Override
+	public Policy getRecheckPolicy() {
+		return Policy.NEIGHBOR_CHANGE;
+	}
+
+	@Override
+	public int getRecheckInterval() {
+		return 0;
+	}
 }
@@ -40,7 +40,6 @@ public class StripesHandlerPipeWires implements IStripesHandler {
 
 				if (!pipeTile.pipe.wireSet[pipeWireColor]) {
 					pipeTile.pipe.wireSet[pipeWireColor] = true;
-					pipeTile.pipe.signalStrength[pipeWireColor] = 0;
 
 					pipeTile.pipe.updateSignalState();
 					pipeTile.scheduleRenderUpdate();
@@ -0,0 +1,126 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.transport.utils;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraftforge.common.util.ForgeDirection;
+
+/**
+ * Remembers, for each side of an item pipe, whether the adjacent tile
+ * accepted a given kind of item (item, damage and NBT) the last time it was
+ * probed. Accepting answers are kept for a short while, refusals only for the
+ * tick they were computed in, and a side is forgotten as soon as the tile on
+ * it changes.
+ */
+public class DestinationCache {
+
+	public static final int ACCEPT_TICKS = 20;
+
+	/** Lookups answered from the cache and not, in all pipes, for /buildcraft pipes. */
+	public static long hits, misses;
+
+	private static final int ENTRIES_PER_SIDE = 4;
+	private static final int SIDES = ForgeDirection.VALID_DIRECTIONS.length;
+
+	private final TileEntity[] tiles = new TileEntity[SIDES];
+	private final int[] nextEntry = new int[SIDES];
+
+	private final Item[] items = new Item[SIDES * ENTRIES_PER_SIDE];
+	private final int[] damages = new int[SIDES * ENTRIES_PER_SIDE];
+	private final NBTTagCompound[] tags = new NBTTagCompound[SIDES * ENTRIES_PER_SIDE];
+	private final boolean[] results = new boolean[SIDES * ENTRIES_PER_SIDE];
+	private final long[] validUntil = new long[SIDES * ENTRIES_PER_SIDE];
+
+	/**
+	 * Looks up the cached answer for the given side and stack.
+	 *
+	 * @return the cached answer, or null if there is none still valid
+	 */
+	public Boolean get(ForgeDirection side, TileEntity tile, ItemStack stack, long worldTime) {
+		int s = side.ordinal();
+
+		if (tiles[s] != tile) {
+			invalidate(side);
+			tiles[s] = tile;
+			misses++;
+			return null;
+		}
+
+		int index = find(s, stack);
+
+		if (index < 0 || validUntil[index] < worldTime) {
+			misses++;
+			return null;
+		}
+
+		hits++;
+		return results[index] ? Boolean.TRUE : Boolean.FALSE;
+	}
+
+	public void put(ForgeDirection side, TileEntity tile, ItemStack stack, boolean accepts, long worldTime) {
+		int s = side.ordinal();
+
+		if (tiles[s] != tile) {
+			invalidate(side);
+			tiles[s] = tile;
+		}
+
+		int index = find(s, stack);
+
+		if (index < 0) {
+			index = s * ENTRIES_PER_SIDE + nextEntry[s];
+			nextEntry[s] = (nextEntry[s] + 1) % ENTRIES_PER_SIDE;
+
+			items[index] = stack.getItem();
+			damages[index] = stack.getItemDamage();
+			tags[index] = stack.hasTagCompound() ? (NBTTagCompound) stack.getTagCompound().copy() : null;
+		}
+
+		results[index] = accepts;
+		validUntil[index] = accepts ? worldTime + ACCEPT_TICKS : worldTime;
+	}
+
+	public void invalidate(ForgeDirection side) {
+		int s = side.ordinal();
+		int start = s * ENTRIES_PER_SIDE;
+
+		tiles[s] = null;
+		nextEntry[s] = 0;
+
+		for (int i = start; i < start + ENTRIES_PER_SIDE; i++) {
+			items[i] = null;
+			tags[i] = null;
+		}
+	}
+
+	public void invalidateAll() {
+		for (ForgeDirection side : ForgeDirection.VALID_DIRECTIONS) {
+			invalidate(side);
+		}
+	}
+
+	private int find(int side, ItemStack stack) {
+		Item item = stack.getItem();
+		int damage = stack.getItemDamage();
+		NBTTagCompound tag = stack.getTagCompound();
+		int start = side * ENTRIES_PER_SIDE;
+
+		for (int i = start; i < start + ENTRIES_PER_SIDE; i++) {
+			if (items[i] == item && item != null && damages[i] == damage
+					&& (tags[i] == null ? tag == null : tags[i].equals(tag))) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+}
@@ -1,6 +1,11 @@
 package buildcraft.transport.utils;
 
 public class FluidRenderData {
+	/**
+	 * The number of fill levels fluids are rendered with in a pipe section.
+	 */
+	public static final int LIQUID_STAGES = 40;
+
 	public int fluidID, color;
 	public int[] amount = new int[7];
 
@@ -11,4 +16,28 @@ public class FluidRenderData {
 		System.arraycopy(this.amount, 0, n.amount, 0, 7);
 		return n;
 	}
+
+	/**
+	 * Returns the level an amount is rendered at: 0 when empty, otherwise 1
+	 * plus the stage the renderer draws it with.
+	 */
+	public static int getLevel(int amount, int capacity) {
+		if (amount <= 0) {
+			return 0;
+		}
+
+		return 1 + Math.min(LIQUID_STAGES - 1, amount * (LIQUID_STAGES - 1) / capacity);
+	}
+
+	/**
+	 * Returns an amount that is rendered at the given level, the reverse of
+	 * {@link #getLevel}.
+	 */
+	public static int getAmount(int level, int capacity) {
+		if (level <= 0) {
+			return 0;
+		}
+
+		return Math.min(capacity, (level - 1) * capacity / (LIQUID_STAGES - 1) + 1);
+	}
 }
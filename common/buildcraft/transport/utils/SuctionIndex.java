@@ -0,0 +1,329 @@
+/**
+ * Copyright (c) 2011-2015, SpaceToad and the BuildCraft Team
+ * http://www.mod-buildcraft.com
+ *
+ * BuildCraft is distributed under the terms of the Minecraft Mod Public
+ * License 1.0, or MMPL. Please check the contents of the license located in
+ * http://www.mod-buildcraft.com/MMPL-1.0.txt
+ */
+package buildcraft.transport.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import gnu.trove.iterator.TLongIntIterator;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+import net.minecraft.entity.Entity;
+import net.minecraft.entity.item.EntityItem;
+import net.minecraft.entity.item.EntityMinecartChest;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.projectile.EntityArrow;
+import net.minecraft.util.AxisAlignedBB;
+import net.minecraft.util.MathHelper;
+import net.minecraft.world.IWorldAccess;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import cpw.mods.fml.common.eventhandler.SubscribeEvent;
+import cpw.mods.fml.common.gameevent.TickEvent;
+import net.minecraftforge.event.world.WorldEvent;
+
+import buildcraft.transport.pipes.PipeItemsObsidian;
+
+/**
+ * Spatial index of the volumes obsidian pipes pull entities from.
+ *
+ * At the end of each server tick, the entities a pipe may pull in are read
+ * from the chunk sections the volumes cover. Those which moved are looked up
+ * in the index, and handed to the pipes whose volume they are in. Entities
+ * away from every volume are never looked at, and pipes with no such entity
+ * around do no work at all.
+ */
+public class SuctionIndex {
+
+	private static final class Tracked {
+		public final Entity entity;
+		public double x = Double.NaN, y, z;
+
+		public Tracked(Entity entity) {
+			this.entity = entity;
+		}
+	}
+
+	private static final class WorldIndex implements IWorldAccess {
+		private final World world;
+		private final TLongObjectHashMap<ArrayList<PipeItemsObsidian>> cells = new TLongObjectHashMap<ArrayList<PipeItemsObsidian>>();
+		/**
+		 * Number of volumes near each chunk section, which is a cell. Reaches
+		 * one cell further than the volumes, for entities whose position is
+		 * outside of a volume while their box is in it.
+		 */
+		private final TLongIntHashMap sections = new TLongIntHashMap();
+		private final Map<Entity, Tracked> tracked = new HashMap<Entity, Tracked>();
+
+		public WorldIndex(World world) {
+			this.world = world;
+			world.addWorldAccess(this);
+		}
+
+		public void update() {
+			for (TLongIntIterator it = sections.iterator(); it.hasNext();) {
+				it.advance();
+
+				long key = it.key();
+				int cx = keyX(key);
+				int cz = keyZ(key);
+				int cy = keyY(key);
+
+				if (cy < 0 || cy > 15 || !world.getChunkProvider().chunkExists(cx, cz)) {
+					continue;
+				}
+
+				Chunk chunk = world.getChunkFromChunkCoords(cx, cz);
+				List<?> entities = chunk.entityLists[cy];
+
+				for (int i = 0; i < entities.size(); i++) {
+					Entity entity = (Entity) entities.get(i);
+
+					if (isSuckable(entity)) {
+						update(entity);
+					}
+				}
+			}
+		}
+
+		private void update(Entity entity) {
+			Tracked t = tracked.get(entity);
+
+			if (t == null) {
+				t = new Tracked(entity);
+				tracked.put(entity, t);
+			}
+
+			if (entity.isDead || (entity.posX == t.x && entity.posY == t.y && entity.posZ == t.z)) {
+				return;
+			}
+
+			t.x = entity.posX;
+			t.y = entity.posY;
+			t.z = entity.posZ;
+
+			AxisAlignedBB box = entity.boundingBox;
+
+			for (int cx = cell(box.minX); cx <= cell(box.maxX); cx++) {
+				for (int cy = cell(box.minY); cy <= cell(box.maxY); cy++) {
+					for (int cz = cell(box.minZ); cz <= cell(box.maxZ); cz++) {
+						ArrayList<PipeItemsObsidian> pipes = cells.get(key(cx, cy, cz));
+
+						if (pipes != null) {
+							for (PipeItemsObsidian pipe : pipes) {
+								if (pipe.getSuctionBounds().intersectsWith(box)) {
+									pipe.addSuctionCandidate(entity);
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+
+		public void add(PipeItemsObsidian pipe, AxisAlignedBB bounds) {
+			for (int cx = cell(bounds.minX); cx <= cell(bounds.maxX); cx++) {
+				for (int cy = cell(bounds.minY); cy <= cell(bounds.maxY); cy++) {
+					for (int cz = cell(bounds.minZ); cz <= cell(bounds.maxZ); cz++) {
+						long key = key(cx, cy, cz);
+						ArrayList<PipeItemsObsidian> pipes = cells.get(key);
+
+						if (pipes == null) {
+							pipes = new ArrayList<PipeItemsObsidian>(1);
+							cells.put(key, pipes);
+						}
+
+						pipes.add(pipe);
+					}
+				}
+			}
+
+			updateSections(bounds, 1);
+		}
+
+		public void remove(PipeItemsObsidian pipe, AxisAlignedBB bounds) {
+			for (int cx = cell(bounds.minX); cx <= cell(bounds.maxX); cx++) {
+				for (int cy = cell(bounds.minY); cy <= cell(bounds.maxY); cy++) {
+					for (int cz = cell(bounds.minZ); cz <= cell(bounds.maxZ); cz++) {
+						long key = key(cx, cy, cz);
+						ArrayList<PipeItemsObsidian> pipes = cells.get(key);
+
+						if (pipes != null && pipes.remove(pipe) && pipes.isEmpty()) {
+							cells.remove(key);
+						}
+					}
+				}
+			}
+
+			updateSections(bounds, -1);
+		}
+
+		private void updateSections(AxisAlignedBB bounds, int change) {
+			for (int cx = cell(bounds.minX) - 1; cx <= cell(bounds.maxX) + 1; cx++) {
+				for (int cy = cell(bounds.minY) - 1; cy <= cell(bounds.maxY) + 1; cy++) {
+					for (int cz = cell(bounds.minZ) - 1; cz <= cell(bounds.maxZ) + 1; cz++) {
+						long key = key(cx, cy, cz);
+
+						if (sections.adjustOrPutValue(key, change, change) <= 0) {
+							sections.remove(key);
+						}
+					}
+				}
+			}
+		}
+
+		public void clear() {
+			world.removeWorldAccess(this);
+			cells.clear();
+			sections.clear();
+			tracked.clear();
+		}
+
+		@Override
+		public void markBlockForUpdate(int x, int y, int z) {
+		}
+
+		@Override
+		public void markBlockForRenderUpdate(int x, int y, int z) {
+		}
+
+		@Override
+		public void markBlockRangeForRenderUpdate(int x1, int y1, int z1, int x2, int y2, int z2) {
+		}
+
+		@Override
+		public void playSound(String sound, double x, double y, double z, float volume, float pitch) {
+		}
+
+		@Override
+		public void playSoundToNearExcept(EntityPlayer player, String sound, double x, double y, double z,
+				float volume, float pitch) {
+		}
+
+		@Override
+		public void spawnParticle(String particle, double x, double y, double z, double velX, double velY,
+				double velZ) {
+		}
+
+		@Override
+		public void onEntityCreate(Entity entity) {
+		}
+
+		@Override
+		public void onEntityDestroy(Entity entity) {
+			tracked.remove(entity);
+		}
+
+		@Override
+		public void playRecord(String record, int x, int y, int z) {
+		}
+
+		@Override
+		public void broadcastSound(int sound, int x, int y, int z, int data) {
+		}
+
+		@Override
+		public void playAuxSFX(EntityPlayer player, int sfx, int x, int y, int z, int data) {
+		}
+
+		@Override
+		public void destroyBlockPartially(int entityId, int x, int y, int z, int progress) {
+		}
+
+		@Override
+		public void onStaticEntitiesChanged() {
+		}
+	}
+
+	private final Map<World, WorldIndex> worlds = new HashMap<World, WorldIndex>();
+
+	/**
+	 * Returns true for the entities obsidian pipes may pull in.
+	 */
+	public static boolean isSuckable(Entity entity) {
+		return entity instanceof EntityItem || entity instanceof EntityArrow || entity instanceof EntityMinecartChest;
+	}
+
+	private static int cell(double coord) {
+		return MathHelper.floor_double(coord) >> 4;
+	}
+
+	private static long key(int cx, int cy, int cz) {
+		return (cx & 0x3FFFFFL) | ((cz & 0x3FFFFFL) << 22) | ((cy & 0xFFFFFL) << 44);
+	}
+
+	private static int keyX(long key) {
+		return (int) (key << 42 >> 42);
+	}
+
+	private static int keyZ(long key) {
+		return (int) (key << 20 >> 42);
+	}
+
+	private static int keyY(long key) {
+		return (int) (key >> 44);
+	}
+
+	/**
+	 * Adds the volume of the given pipe. Entities already in it are handed
+	 * to the pipe right away.
+	 */
+	public void register(PipeItemsObsidian pipe, AxisAlignedBB bounds) {
+		World world = pipe.getWorld();
+		WorldIndex index = worlds.get(world);
+
+		if (index == null) {
+			index = new WorldIndex(world);
+			worlds.put(world, index);
+		}
+
+		index.add(pipe, bounds);
+
+		for (Object o : world.getEntitiesWithinAABB(Entity.class, bounds)) {
+			if (isSuckable((Entity) o)) {
+				pipe.addSuctionCandidate((Entity) o);
+			}
+		}
+	}
+
+	/**
+	 * Removes a volume added with {@link #register}, the bounds have to be
+	 * the same.
+	 */
+	public void unregister(PipeItemsObsidian pipe, AxisAlignedBB bounds) {
+		WorldIndex index = worlds.get(pipe.getWorld());
+
+		if (index != null) {
+			index.remove(pipe, bounds);
+		}
+	}
+
+	@SubscribeEvent
+	public void tick(TickEvent.WorldTickEvent event) {
+		if (event.phase == TickEvent.Phase.END && !event.world.isRemote) {
+			WorldIndex index = worlds.get(event.world);
+
+			if (index != null) {
+				index.update();
+			}
+		}
+	}
+
+	@SubscribeEvent
+	public void onWorldUnload(WorldEvent.Unload event) {
+		WorldIndex index = worlds.remove(event.world);
+
+		if (index != null) {
+			index.clear();
+		}
+	}
+}